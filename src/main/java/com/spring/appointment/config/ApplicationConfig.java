@@ -2,6 +2,7 @@ package com.spring.appointment.config;
 
 import com.spring.appointment.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -26,17 +27,18 @@ public class ApplicationConfig {
 
     //authenticationProvider is a dao that is responsible to fetch the user details, encode passwords
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService());//which user details to use to fetch user,since we can have multiple user details implementation
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
 
     }
 
+    // Raising the strength rehashes each password at its owner's next login (see PasswordHasher)
     @Bean
-    public  PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public  PasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
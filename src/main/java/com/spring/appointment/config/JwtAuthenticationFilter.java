@@ -1,19 +1,21 @@
 package com.spring.appointment.config;
 
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.records.AuthenticatedUser;
+import com.spring.appointment.records.UserAccess;
 import com.spring.appointment.service.JwtService;
+import com.spring.appointment.service.UserAccessCache;
 
 import java.io.IOException;
 
@@ -21,11 +23,12 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
 
-    private final UserDetailsService userDetailsService; //interface in spring (next applicationConfig to implement our own methods)
+    // role and status of the token's user, cached so no User is loaded per request
+    private final UserAccessCache userAccessCache;
 
-    public JwtAuthenticationFilter(JwtService jwtService, @Lazy UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService, UserAccessCache userAccessCache) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.userAccessCache = userAccessCache;
     }
 
     @Override
@@ -34,6 +37,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
         final String userEmail;
+        final Long userId;
 
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -44,14 +48,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         //extracting user email by jwt service 3rd a step
         jwt = authHeader.substring(7);
 
-        userEmail=jwtService.extractUserName(jwt);
+        // verified once per request (and usually served from the cache); null if invalid or expired
+        Claims claims = jwtService.verify(jwt);
+        userEmail = claims == null ? null : claims.getSubject();
+        userId = claims == null ? null : claims.get("userId", Long.class);
 
 
-        if(userEmail!=null && SecurityContextHolder.getContext().getAuthentication()==null ) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-            if(jwtService.isTokenValid(jwt, userDetails)) {
+        if(userEmail!=null && userId!=null && SecurityContextHolder.getContext().getAuthentication()==null ) {
+            // the role comes from the cache rather than the token, so a role change or a block applies at once
+            UserAccess access = userAccessCache.get(userId)
+                    .filter(user -> user.email().equals(userEmail) && user.status() == UserStatus.ACTIVE)
+                    .orElse(null);
+            if(access != null) {
+                AuthenticatedUser principal = new AuthenticatedUser(access.userId(), access.email(), access.role());
                // Create an Authentication object
-                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(principal, null, principal.authorities());
               // this   Adds information about the current request (e.g., IP address, session ID) Useful for logging or security checks.
                 authenticationToken.setDetails(new WebAuthenticationDetails(request));
             // Store authentication in the SecurityContex
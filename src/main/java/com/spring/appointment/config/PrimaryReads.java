@@ -0,0 +1,38 @@
+package com.spring.appointment.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+// Runs a read against the primary even from a read-only transaction that went to the replica.
+// In-memory caches fill through it: they are kept current by this instance's commits, so a fill
+// from a replica that has not caught up with one of them would stay wrong until it expires.
+// Outside any transaction it gets one on the primary too, since the repository's own read-only
+// transaction would otherwise go to the replica. Without a replica, or inside a read-write
+// transaction, the read just runs in place.
+@Component
+public class PrimaryReads {
+    private final boolean replicaConfigured;
+    private final TransactionTemplate onPrimary;
+
+    public PrimaryReads(PlatformTransactionManager transactionManager,
+                        @Value("${datasource.replica.url:}") String replicaUrl) {
+        this.replicaConfigured = !replicaUrl.isBlank();
+        this.onPrimary = new TransactionTemplate(transactionManager);
+        onPrimary.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        onPrimary.setReadOnly(true);
+    }
+
+    public <T> T read(Supplier<T> read) {
+        if (!replicaConfigured || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return read.get();
+        }
+        return ReadWriteRoutingDataSource.onPrimary(() -> onPrimary.execute(status -> read.get()));
+    }
+}
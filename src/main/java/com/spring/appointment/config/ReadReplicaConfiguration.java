@@ -0,0 +1,59 @@
+package com.spring.appointment.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// Only with datasource.replica.url set: spring.datasource.* becomes the primary pool, a second
+// pool points at the replica, and the DataSource everything else uses routes between them.
+// Flyway and schema validation run outside transactions, so they always reach the primary.
+@Configuration
+@ConditionalOnExpression("!'${datasource.replica.url:}'.isBlank()")
+public class ReadReplicaConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(
+            @Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${datasource.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${datasource.replica.maximum-pool-size:10}") int maximumPoolSize) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        replica.setPoolName("replica");
+        replica.setMaximumPoolSize(maximumPoolSize);
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 @Value("${datasource.replica.sticky-ms:2000}") long stickyMillis) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, stickyMillis);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
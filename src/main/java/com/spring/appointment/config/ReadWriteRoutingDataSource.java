@@ -0,0 +1,89 @@
+package com.spring.appointment.config;
+
+import com.spring.appointment.records.AuthenticatedUser;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Sends connections of read-only transactions to the replica and everything else to the primary.
+// Must sit behind a LazyConnectionDataSourceProxy so the connection is only picked once the
+// transaction's read-only flag is known. A user whose read-write transaction committed within
+// the sticky window reads from the primary, so they see their own writes despite replica lag;
+// the window is per instance.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final int PRUNE_THRESHOLD = 1 << 16;
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final long stickyNanos;
+    private final Map<Long, Long> lastWriteByUser = new ConcurrentHashMap<>();
+
+    enum Target { PRIMARY, REPLICA }
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long stickyMillis) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.stickyNanos = TimeUnit.MILLISECONDS.toNanos(stickyMillis);
+    }
+
+    // Connections taken while the supplier runs come from the primary, read-only or not
+    static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PINNED_TO_PRIMARY.get();
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PINNED_TO_PRIMARY.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Long userId = currentUserId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (userId != null && stickyNanos > 0 && TransactionSynchronizationManager.isActualTransactionActive()) {
+                rememberWriteOnCommit(userId);
+            }
+            return Target.PRIMARY;
+        }
+        if (PINNED_TO_PRIMARY.get() != null || (userId != null && wroteRecently(userId))) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    private void rememberWriteOnCommit(long userId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                long now = System.nanoTime();
+                if (lastWriteByUser.size() >= PRUNE_THRESHOLD) {
+                    lastWriteByUser.values().removeIf(writtenAt -> now - writtenAt >= stickyNanos);
+                }
+                lastWriteByUser.put(userId, now);
+            }
+        });
+    }
+
+    private boolean wroteRecently(long userId) {
+        Long writtenAt = lastWriteByUser.get(userId);
+        return writtenAt != null && System.nanoTime() - writtenAt < stickyNanos;
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return user.userId();
+        }
+        return null;
+    }
+}
@@ -1,5 +1,6 @@
 package com.spring.appointment.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -25,6 +26,8 @@ public class SecurityConfiguration {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         return http.csrf(customizer ->customizer.disable())
                 .authorizeHttpRequests(request ->request
+                        // an SSE stream ends with an async dispatch that carries no token; it was authorized on connect
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/v1/auth/**").permitAll() // public endpoints
                         .requestMatchers("/api/**").authenticated()                             // everything else under /api/auth requires auth
                         .anyRequest().permitAll())
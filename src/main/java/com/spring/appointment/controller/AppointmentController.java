@@ -1,60 +1,63 @@
 package com.spring.appointment.controller;
 
+import com.spring.appointment.enums.AppointmentStatus;
+import com.spring.appointment.enums.AppointmentWindow;
 import com.spring.appointment.model.Appointment;
-import com.spring.appointment.model.Notification;
-import com.spring.appointment.model.Provider;
 
-import com.spring.appointment.model.User;
 import com.spring.appointment.records.*;
 
 import com.spring.appointment.service.AppointmentService;
+import com.spring.appointment.service.LiveEventBus;
 import com.spring.appointment.service.NotificationService;
-import com.spring.appointment.service.ProviderService;
+import com.spring.appointment.service.ProviderDirectory;
+import com.spring.appointment.service.SlotHold;
+import com.spring.appointment.service.SlotOccupancyIndex;
+import com.spring.appointment.service.SlotSearchService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-
-import static java.util.Collections.emptyList;
+import java.util.Optional;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/appointments")
 public class AppointmentController {
     private final AppointmentService appointmentService;
-    private final ProviderService providerService;
     private final NotificationService notificationService;
+    private final SlotSearchService slotSearchService;
+    private final LiveEventBus liveEventBus;
+    private final ProviderDirectory providerDirectory;
 
+    // Pre-serialized and tagged with a strong ETag; a matching If-None-Match gets 304 without a body
     @GetMapping("/providers")
-    public ResponseEntity<List<ProviderListResponse>> getAllProviders() {
-        try {
-            List<Provider> providers = appointmentService.getAllProviders();
-
-            List<ProviderListResponse> response = providers.stream()
-                    .map(ProviderListResponse::convert)
-                    .toList();
-
-            return ResponseEntity.ok(response);
-
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest()
-                    .body(emptyList());
-        }
+    public ResponseEntity<byte[]> getAllProviders() {
+        ProviderDirectory.Snapshot directory = providerDirectory.current();
+        return ResponseEntity.ok()
+                .eTag(directory.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(directory.json());
     }
 
     @PostMapping("providers/{providerId}/book")
     @PreAuthorize("hasRole('CUSTOMER')")
     public ResponseEntity<AppointmentBookingResponse> bookAppointment(@PathVariable Long providerId,@Valid @RequestBody AppointmentBookingRequest request, Authentication authentication) {
         try {
-            User user = (User) authentication.getPrincipal();
-            long customerId = user.getUserId();
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            long customerId = user.userId();
 
            Appointment appointment= appointmentService.bookAppointment(customerId, providerId,request);
            AppointmentBookingResponse response = new AppointmentBookingResponse(appointment.getAppointmentId(),customerId,providerId,request.appointmentTime());
@@ -67,25 +70,44 @@ public class AppointmentController {
 
     }
 
-    @GetMapping("/allAppointments")
-    public ResponseEntity<List<AppointmentResponse>> getAppointments(Authentication authentication) {
+    @PostMapping("providers/{providerId}/hold")
+    @PreAuthorize("hasRole('CUSTOMER')")
+    public ResponseEntity<SlotHoldResponse> holdSlot(@PathVariable Long providerId, @Valid @RequestBody SlotHoldRequest request, Authentication authentication) {
         try {
-            User user = (User) authentication.getPrincipal();
-            long userId = user.getUserId();
-
-            List<Appointment> appointments = appointmentService.getAppointmentsForUser(userId);
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
 
-            List<AppointmentResponse> appointmentResponse = appointments.stream()
-                    .map(AppointmentResponse::from)
-                    .toList();
-
-            return ResponseEntity.ok(appointmentResponse);
+            SlotHold hold = appointmentService.holdSlot(user.userId(), providerId, request.appointmentTime());
+            return ResponseEntity.ok(SlotHoldResponse.from(hold));
 
         } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(emptyList());
+            return ResponseEntity.badRequest()
+                    .body(new SlotHoldResponse(e.getMessage()));
         }
     }
 
+    @PostMapping("/holds/{holdToken}/release")
+    @PreAuthorize("hasRole('CUSTOMER')")
+    public ResponseEntity<Void> releaseHold(@PathVariable String holdToken, Authentication authentication) {
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+
+        return appointmentService.releaseHold(holdToken, user.userId())
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // One page of the caller's appointments; pass nextCursor back with the same filters for the next page
+    @GetMapping("/allAppointments")
+    public ResponseEntity<AppointmentPageResponse> getAppointments(
+            @RequestParam(defaultValue = "ALL") AppointmentWindow window,
+            @RequestParam(required = false) AppointmentStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return ResponseEntity.ok(appointmentService.getAppointmentsForUser(
+                user.userId(), user.role(), window, status, cursor, limit));
+    }
+
     @PostMapping("/provider/{providerId}/available-slots")
     public ResponseEntity<ProviderSlotsResponse> getProviderAvailableSlots(
             @PathVariable Long providerId,
@@ -98,42 +120,99 @@ public class AppointmentController {
                         .body(ProviderSlotsResponse.error(providerId, request.date(), "INVALID_PROVIDER_ID"));
             }
 
-            // Get provider information
-            Provider provider = providerService.getProviderById(providerId);
-            if (provider == null) {
+            // Provider name and service type from the cached directory
+            Optional<ProviderListResponse> provider = providerDirectory.findListing(providerId);
+            if (provider.isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
 
-            // Get available time slots
-            List<LocalDateTime> availableSlotTimes = appointmentService.getAvailableTimeSlots(providerId, request.date());
+            // Get available time slots as a bitmask straight from the slot index
+            int freeMask = appointmentService.getAvailableSlotMask(providerId, request.date());
 
             // Convert to TimeSlot records (using default 30-minute duration)
-            List<TimeSlot> availableSlots = availableSlotTimes.stream()
-                    .map(dateTime -> TimeSlot.regular(dateTime, 30))
-                    .toList();
+            List<TimeSlot> availableSlots = new ArrayList<>(Integer.bitCount(freeMask));
+            for (int slots = freeMask; slots != 0; slots &= slots - 1) {
+                LocalDateTime slotStart = SlotOccupancyIndex.slotStart(request.date(), Integer.numberOfTrailingZeros(slots));
+                availableSlots.add(TimeSlot.regular(slotStart, SlotOccupancyIndex.SLOT_MINUTES));
+            }
 
             // Create response
             ProviderSlotsResponse response = ProviderSlotsResponse.of(
-                    provider, request.date(), availableSlots
+                    provider.get(), request.date(), availableSlots
             );
 
             return ResponseEntity.ok(response);
 
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest()
-                    .body(ProviderSlotsResponse.error(providerId, request.date(), "INTERNAL_ERROR: " + e.getMessage()));
+                    .body(ProviderSlotsResponse.error(providerId, request.date(), e.getMessage()));
         }
     }
 
 
 
 
+    // Pushes the day's availability on connect and again whenever one of its slots changes
+    @GetMapping(value = "/provider/{providerId}/available-slots/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamProviderAvailableSlots(
+            @PathVariable Long providerId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (providerDirectory.findListing(providerId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(liveEventBus.subscribeProviderDay(providerId, date, "slots",
+                () -> appointmentService.getDayAvailability(providerId, date)));
+    }
+
+    @PostMapping("/provider/{providerId}/available-slots/range")
+    public ResponseEntity<ProviderSlotRangeResponse> getProviderAvailableSlotsInRange(
+            @PathVariable Long providerId,
+            @Valid @RequestBody AvailableSlotsRangeRequest request) {
+
+        try {
+            if (providerId == null || providerId <= 0) {
+                return ResponseEntity.badRequest()
+                        .body(ProviderSlotRangeResponse.error(providerId, request.startDate(), request.endDate(), "INVALID_PROVIDER_ID"));
+            }
+
+            Optional<ProviderListResponse> provider = providerDirectory.findListing(providerId);
+            if (provider.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+
+            List<DailyAvailability> days = appointmentService.getAvailableSlotsInRange(
+                    providerId, request.startDate(), request.endDate(), request.weekdays()
+            );
+
+            return ResponseEntity.ok(ProviderSlotRangeResponse.of(
+                    provider.get(), request.startDate(), request.endDate(), SlotOccupancyIndex.SLOT_MINUTES, days
+            ));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ProviderSlotRangeResponse.error(providerId, request.startDate(), request.endDate(), e.getMessage()));
+        }
+    }
+
+    @GetMapping("/slots/earliest")
+    public ResponseEntity<EarliestSlotsResponse> getEarliestSlots(
+            @RequestParam String serviceType,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(slotSearchService.findEarliestSlots(serviceType, limit));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(EarliestSlotsResponse.error(serviceType, limit, e.getMessage()));
+        }
+    }
+
     @PostMapping("/{appointmentId}/confirm")
     @PreAuthorize("hasRole('PROVIDER')")
     public ResponseEntity<AppointmentConfirmResponse> confirmAppointment(@PathVariable Long appointmentId,Authentication authentication) {
         try {
-            User user = (User) authentication.getPrincipal();
-            long userId = user.getUserId();
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            long userId = user.userId();
             Appointment appointment =appointmentService.confirmAppointment(appointmentId,userId);
 
             AppointmentConfirmResponse response = new AppointmentConfirmResponse(
@@ -154,8 +233,8 @@ public class AppointmentController {
     @PostMapping("/{appointmentId}/cancel")
     public ResponseEntity<AppointmentResponse> cancelAppointment(@PathVariable Long appointmentId, Authentication authentication) {
         try {
-            User user = (User) authentication.getPrincipal();
-            long userId = user.getUserId();
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            long userId = user.userId();
 
             Appointment appointment = appointmentService.cancelAppointment(appointmentId, userId);
             return ResponseEntity.ok(AppointmentResponse.from(appointment));
@@ -166,20 +245,34 @@ public class AppointmentController {
     }
 
     @GetMapping("/notifications")
-    public ResponseEntity<List<NotificationResponse>> getUserNotifications(Authentication authentication) {
-        try {
-            User user = (User) authentication.getPrincipal();
-            List<Notification> notifications = notificationService.getUserNotifications(user.getUserId());
-
-            List<NotificationResponse> response = notifications.stream()
-                    .map(NotificationResponse::from)
-                    .toList();
+    public ResponseEntity<NotificationPageResponse> getUserNotifications(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return ResponseEntity.ok(notificationService.getUserNotifications(user.userId(), cursor, limit));
+    }
 
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(emptyList());
-        }
+    // New notifications and unread-count changes for the caller, starting with the current count
+    @GetMapping(value = "/notifications/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(Authentication authentication) {
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return liveEventBus.subscribeUser(user.userId(), "unread-count",
+                () -> new UnreadCountResponse(notificationService.getUnreadCount(user.userId())));
     }
 
+    @GetMapping("/notifications/unread-count")
+    public ResponseEntity<UnreadCountResponse> getUnreadNotificationCount(Authentication authentication) {
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return ResponseEntity.ok(new UnreadCountResponse(notificationService.getUnreadCount(user.userId())));
+    }
 
+    @PostMapping("/notifications/read")
+    public ResponseEntity<MarkNotificationsReadResponse> markNotificationsRead(
+            @Valid @RequestBody(required = false) MarkNotificationsReadRequest request,
+            Authentication authentication) {
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        int marked = notificationService.markRead(user.userId(), request == null ? null : request.notificationIds());
+        return ResponseEntity.ok(new MarkNotificationsReadResponse(marked, notificationService.getUnreadCount(user.userId())));
+    }
 }
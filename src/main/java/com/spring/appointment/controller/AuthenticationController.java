@@ -3,9 +3,11 @@ package com.spring.appointment.controller;
 import com.spring.appointment.records.AuthenticateRequest;
 import com.spring.appointment.records.AuthenticationResponse;
 import com.spring.appointment.records.UserRegisterRequest;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.apache.coyote.BadRequestException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,15 +15,22 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import com.spring.appointment.service.AuthenticationService;
+import com.spring.appointment.service.LoginThrottle;
 
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/auth")
 public class AuthenticationController {
     private final AuthenticationService service;
+    private final LoginThrottle loginThrottle;
 
     @PostMapping("/register")
-    public ResponseEntity<AuthenticationResponse> register(@Valid @RequestBody UserRegisterRequest request) throws BadRequestException {
+    public ResponseEntity<AuthenticationResponse> register(@Valid @RequestBody UserRegisterRequest request,
+                                                           HttpServletRequest httpRequest) throws BadRequestException {
+        long retryAfter = loginThrottle.acquire(httpRequest.getRemoteAddr(), request.email());
+        if (retryAfter > 0) {
+            return tooManyAttempts(retryAfter);
+        }
         try {
             AuthenticationResponse response = service.register(request);
             return new ResponseEntity<>(response, HttpStatus.CREATED);
@@ -32,7 +41,12 @@ public class AuthenticationController {
 
     @PostMapping("/login")
     public ResponseEntity<AuthenticationResponse> authenticate(
-            @Valid @RequestBody AuthenticateRequest request) throws BadRequestException {
+            @Valid @RequestBody AuthenticateRequest request,
+            HttpServletRequest httpRequest) throws BadRequestException {
+        long retryAfter = loginThrottle.acquire(httpRequest.getRemoteAddr(), request.email());
+        if (retryAfter > 0) {
+            return tooManyAttempts(retryAfter);
+        }
         try{
             AuthenticationResponse response = service.authenticate(request);
             return new ResponseEntity<>(response,HttpStatus.OK);
@@ -42,4 +56,11 @@ public class AuthenticationController {
 
     }
 
+    // Answered before any hashing, so a throttled attempt costs next to nothing
+    private static ResponseEntity<AuthenticationResponse> tooManyAttempts(long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds))
+                .body(new AuthenticationResponse("Too many attempts, try again later"));
+    }
+
 }
@@ -1,6 +1,6 @@
 package com.spring.appointment.controller;
 
-import com.spring.appointment.model.User;
+import com.spring.appointment.records.AuthenticatedUser;
 import com.spring.appointment.records.BalanceResponse;
 import com.spring.appointment.records.DepositResponse;
 import com.spring.appointment.records.WalletDepositRequest;
@@ -19,11 +19,11 @@ public class WalletController {
     @GetMapping("/balance")
     public ResponseEntity<BalanceResponse> getBalance(Authentication authentication) {
         try {
-            User user = (User) authentication.getPrincipal();
-            String email =user.getEmail();
-            Long userId = user.getUserId();
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            String email =user.email();
+            Long userId = user.userId();
 
-            double walletBalance = walletService.getWalletBalance(userId);
+            long walletBalance = walletService.getWalletBalance(userId);
             BalanceResponse response = new BalanceResponse(email, userId, walletBalance);
             return ResponseEntity.ok(response);
 
@@ -37,12 +37,16 @@ public class WalletController {
     public ResponseEntity<DepositResponse> deposit(@Valid @RequestBody WalletDepositRequest request,
                                                    Authentication authentication) {
         try {
-            User user = (User) authentication.getPrincipal();
-            Long userId = user.getUserId();
+            AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+            Long userId = user.userId();
+            // checked here as well: no bean validation provider is on the classpath to enforce @NotNull
+            if (request.amountMinor() == null) {
+                throw new IllegalArgumentException(WalletDepositRequest.AMOUNT_REQUIRED);
+            }
 
-            double newBalance = walletService.deposit(userId, request.amount());
+            long newBalance = walletService.deposit(userId, request.amountMinor());
 
-            DepositResponse response = new DepositResponse(userId, request.amount(), newBalance);
+            DepositResponse response = new DepositResponse(userId, request.amountMinor(), newBalance);
             return ResponseEntity.ok(response);
 
         } catch (IllegalArgumentException e) {
@@ -0,0 +1,8 @@
+package com.spring.appointment.enums;
+
+// Which part of an appointment history to list; upcoming pages run soonest first, the others newest first
+public enum AppointmentWindow {
+    ALL,
+    UPCOMING,
+    PAST
+}
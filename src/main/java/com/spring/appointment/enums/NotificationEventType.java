@@ -0,0 +1,5 @@
+package com.spring.appointment.enums;
+
+public enum NotificationEventType {
+    APPOINTMENT_BOOKED, APPOINTMENT_CONFIRMED, APPOINTMENT_CANCELLED
+}
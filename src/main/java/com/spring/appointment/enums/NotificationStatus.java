@@ -1,5 +1,6 @@
 package com.spring.appointment.enums;
 
 public enum NotificationStatus {
-    SENT, FAILED
+    // Email delivery only; whether the user has read it in the app is Notification.readAt
+    PENDING, SENT, FAILED
 }
@@ -0,0 +1,32 @@
+package com.spring.appointment.enums;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+// What a notification says, stored as an id; the sentence is only built when it is read
+public enum NotificationTemplate {
+    // rows written before templates existed, whose text is kept in the message column
+    LEGACY,
+    BOOKED_CUSTOMER,
+    BOOKED_PROVIDER,
+    CONFIRMED_CUSTOMER,
+    CONFIRMED_PROVIDER,
+    CANCELLED_OTHER_PARTY,
+    CANCELLED_BY_SELF;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a", Locale.ENGLISH);
+
+    public String render(String counterpartName, LocalDateTime appointmentTime) {
+        String time = appointmentTime.format(TIME_FORMAT);
+        return switch (this) {
+            case BOOKED_CUSTOMER -> "Appointment booked with " + counterpartName + " on " + time + ". Status: PENDING";
+            case BOOKED_PROVIDER -> "New appointment request from " + counterpartName + " on " + time;
+            case CONFIRMED_CUSTOMER -> "Your appointment with " + counterpartName + " on " + time + " has been CONFIRMED";
+            case CONFIRMED_PROVIDER -> "Appointment with " + counterpartName + " on " + time + " has been confirmed";
+            case CANCELLED_OTHER_PARTY -> "Appointment on " + time + " has been CANCELLED by " + counterpartName;
+            case CANCELLED_BY_SELF -> "You have CANCELLED your appointment on " + time;
+            case LEGACY -> throw new IllegalStateException("Legacy notifications carry their own message");
+        };
+    }
+}
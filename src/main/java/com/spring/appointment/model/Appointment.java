@@ -22,13 +22,18 @@ import java.util.List;
                         name = "uk_provider_appointment_time_active",
                         columnNames = {"provider_id", "appointment_time", "status"}
                 )
+        },
+        indexes = {
+                @Index(name = "idx_appointments_customer_time", columnList = "customer_id, appointment_time, appointment_id"),
+                @Index(name = "idx_appointments_provider_time", columnList = "provider_id, appointment_time, appointment_id")
         })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Appointment {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointments_id_gen")
+    @SequenceGenerator(name = "appointments_id_gen", sequenceName = "appointments_seq", allocationSize = 50)
     @Column(name = "appointment_id")
     private Long appointmentId;
 
@@ -0,0 +1,22 @@
+package com.spring.appointment.model;
+
+// Money is carried as a long count of minor units (cents) everywhere: entities, queries
+// and API records. Arithmetic stays exact and never allocates; this class only converts
+// at the edges.
+public final class Money {
+    public static final long MINOR_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    public static long ofMajor(long major) {
+        return Math.multiplyExact(major, MINOR_PER_MAJOR);
+    }
+
+    // 5000 -> "50.00", -5 -> "-0.05"
+    public static String format(long minor) {
+        long abs = Math.abs(minor);
+        long fraction = abs % MINOR_PER_MAJOR;
+        return (minor < 0 ? "-" : "") + abs / MINOR_PER_MAJOR + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
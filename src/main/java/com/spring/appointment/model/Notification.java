@@ -1,39 +1,77 @@
 package com.spring.appointment.model;
 
 import com.spring.appointment.enums.NotificationStatus;
+import com.spring.appointment.enums.NotificationTemplate;
 import jakarta.persistence.*;
-import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at, notification_id"),
+        @Index(name = "idx_notifications_user_read", columnList = "user_id, read_at"),
+        @Index(name = "idx_notifications_status_user", columnList = "status, user_id, notification_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Notification {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notifications_id_gen")
+    @SequenceGenerator(name = "notifications_id_gen", sequenceName = "notifications_seq", allocationSize = 50)
     @Column(name = "notification_id")
     private Long notificationId;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @NotBlank
-    @Column(nullable = false, columnDefinition = "TEXT")
-    private String message;
+    // varchar rather than a MySQL ENUM so adding a template needs no ALTER
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(nullable = false, length = 32)
+    private NotificationTemplate template;
+
+    @Column(name = "appointment_id")
+    private Long appointmentId;
+
+    @Column(name = "counterpart_name")
+    private String counterpartName;
+
+    @Column(name = "appointment_time")
+    private LocalDateTime appointmentTime;
 
+    // Only set on LEGACY rows
+    @Column(name = "message", columnDefinition = "TEXT")
+    private String legacyMessage;
+
+    // PENDING until EmailDeliveryService has mailed it, when email delivery is on
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private NotificationStatus status = NotificationStatus.SENT;
 
+    // Set once the user has read it in the app; unrelated to the email's status
+    @Column(name = "read_at")
+    private LocalDateTime readAt;
+
+    // Set while EmailDeliveryService is mailing a PENDING row; other pollers skip it until then
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
+
+    public String render() {
+        if (template == NotificationTemplate.LEGACY) {
+            return legacyMessage;
+        }
+        return template.render(counterpartName, appointmentTime);
+    }
 }
@@ -0,0 +1,54 @@
+package com.spring.appointment.model;
+
+import com.spring.appointment.enums.NotificationEventType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Outbox row written in the same transaction as the booking, confirmation or cancellation.
+// NotificationDispatcher turns it into notifications later and deletes it.
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_notification_outbox_available", columnList = "available_at")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NotificationEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_id_gen")
+    @SequenceGenerator(name = "notification_outbox_id_gen", sequenceName = "notification_outbox_seq", allocationSize = 50)
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private NotificationEventType type;
+
+    @Column(name = "appointment_id", nullable = false)
+    private Long appointmentId;
+
+    // user who triggered the event, when the message depends on it
+    @Column(name = "actor_id")
+    private Long actorId;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public NotificationEvent(NotificationEventType type, Long appointmentId, Long actorId) {
+        this.type = type;
+        this.appointmentId = appointmentId;
+        this.actorId = actorId;
+        this.createdAt = LocalDateTime.now();
+        this.availableAt = createdAt;
+    }
+}
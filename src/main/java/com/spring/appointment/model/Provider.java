@@ -12,13 +12,15 @@ import java.util.List;
 
 @Entity
 @Table(name = "providers")
+@EntityListeners(ProviderChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Provider {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "providers_id_gen")
+    @SequenceGenerator(name = "providers_id_gen", sequenceName = "providers_seq", allocationSize = 50)
     private Long providerId;
 
     @OneToOne
@@ -0,0 +1,20 @@
+package com.spring.appointment.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+// JPA entity listener on Provider; like UserChangeListener it only publishes an event.
+@RequiredArgsConstructor
+public class ProviderChangeListener {
+    private final ApplicationEventPublisher events;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void providerChanged(Provider provider) {
+        events.publishEvent(new ProviderChanged(provider.getProviderId()));
+    }
+}
@@ -0,0 +1,4 @@
+package com.spring.appointment.model;
+
+// Published by ProviderChangeListener when a Provider is saved or removed through JPA
+public record ProviderChanged(long providerId) {}
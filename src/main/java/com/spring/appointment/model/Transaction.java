@@ -13,14 +13,21 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_wallet_unsettled",
+                columnList = "wallet_id, settled_generation, status, type, stripe, amount_minor"),
+        @Index(name = "idx_transactions_unsettled_wallet", columnList = "settled_generation, wallet_id")
+})
 @Builder
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+// One ledger entry. Rows are only ever inserted; the snapshot job then marks them with the
+// generation of the snapshot that folded them in, and nothing else about them ever changes.
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_id_gen")
+    @SequenceGenerator(name = "transactions_id_gen", sequenceName = "transactions_seq", allocationSize = 50)
     @Column(name = "transaction_id")
     private Long transactionId;
 
@@ -32,9 +39,18 @@ public class Transaction {
     @JoinColumn(name = "appointment_id")
     private Appointment appointment;
 
+    // minor units, see Money
     @NotNull
-    @Column(nullable = false)
-    private double amount;
+    @Column(name = "amount_minor", nullable = false)
+    private long amountMinor;
+
+    // sub-balance of a striped wallet this entry belongs to, 0 otherwise
+    @Column(name = "stripe", nullable = false)
+    private int stripe;
+
+    // snapshot generation this entry is folded into, null until the next snapshot
+    @Column(name = "settled_generation")
+    private Long settledGeneration;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -0,0 +1,20 @@
+package com.spring.appointment.model;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+// JPA entity listener on User. Hibernate builds it through Spring; it only publishes UserChanged,
+// so the caches that hold user data subscribe to it instead of the model depending on them.
+// Listeners run synchronously, inside the flush of the changing transaction.
+@RequiredArgsConstructor
+public class UserChangeListener {
+    private final ApplicationEventPublisher events;
+
+    @PostUpdate
+    @PostRemove
+    void userChanged(User user) {
+        events.publishEvent(new UserChanged(user.getUserId(), user.getRole()));
+    }
+}
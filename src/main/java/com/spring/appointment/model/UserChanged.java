@@ -0,0 +1,6 @@
+package com.spring.appointment.model;
+
+import com.spring.appointment.enums.UserRole;
+
+// Published by UserChangeListener when a User is updated or removed through JPA
+public record UserChanged(long userId, UserRole role) {}
@@ -17,7 +17,8 @@ import java.util.List;
 @NoArgsConstructor
 public class Wallet {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallets_id_gen")
+    @SequenceGenerator(name = "wallets_id_gen", sequenceName = "wallets_seq", allocationSize = 50)
     @Column(name = "wallet_id")
     private Long walletId;
 
@@ -25,19 +26,21 @@ public class Wallet {
     @JoinColumn(name = "user_id", nullable = false, unique = true)
     private User user;
 
-    @Column(nullable = false)
-    private double balance ;
+    // Ledger stripes the wallet's entries are spread over, 1 when unstriped. Fixed once the
+    // wallet is opened, see WalletLedger
+    @Column(name = "stripes", nullable = false)
+    private int stripes = 1;
 
     @Column(name = "last_updated")
     private LocalDateTime lastUpdated;
 
-    // One-to-Many relationship with Transactions
+    // One-to-Many relationship with Transactions; the balance is derived from them, see WalletLedger
     @OneToMany(mappedBy = "wallet", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Transaction> transactions = new ArrayList<>();
 
     public Wallet(User user) {
         this.user = user;
-        this.balance = 0.0;
+        this.stripes = 1;
         this.lastUpdated = LocalDateTime.now();
         this.transactions = new ArrayList<>();
     }
@@ -0,0 +1,48 @@
+package com.spring.appointment.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Balance of one wallet stripe over every ledger entry marked with this generation or an earlier
+// one. All stripes of a wallet are snapshotted together; the balance is the latest generation
+// plus the entries not yet marked.
+@Entity
+@Table(name = "wallet_snapshots", indexes = {
+        @Index(name = "idx_wallet_snapshots_wallet_generation", columnList = "wallet_id, generation")
+})
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WalletSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallet_snapshots_id_gen")
+    @SequenceGenerator(name = "wallet_snapshots_id_gen", sequenceName = "wallet_snapshots_seq", allocationSize = 50)
+    @Column(name = "snapshot_id")
+    private Long snapshotId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "wallet_id", nullable = false)
+    private Wallet wallet;
+
+    @Column(name = "stripe", nullable = false)
+    private int stripe;
+
+    // minor units, see Money
+    @Column(name = "balance_minor", nullable = false)
+    private long balanceMinor;
+
+    // 1 for a wallet's first snapshot, then one more for each; taken under the wallet's locks
+    @Column(name = "generation", nullable = false)
+    private long generation;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,35 @@
+package com.spring.appointment.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Lock row for stripe 1..n-1 of a striped wallet; stripe 0 locks the wallet row itself.
+// Debits lock only the stripes they draw from, so refunds on one provider run side by side.
+@Entity
+@Table(name = "wallet_stripes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_wallet_stripes_wallet_stripe", columnNames = {"wallet_id", "stripe"})
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WalletStripe {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "wallet_stripes_id_gen")
+    @SequenceGenerator(name = "wallet_stripes_id_gen", sequenceName = "wallet_stripes_seq", allocationSize = 50)
+    @Column(name = "stripe_id")
+    private Long stripeId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "wallet_id", nullable = false)
+    private Wallet wallet;
+
+    @Column(name = "stripe", nullable = false)
+    private int stripe;
+
+    public WalletStripe(Wallet wallet, int stripe) {
+        this.wallet = wallet;
+        this.stripe = stripe;
+    }
+}
@@ -9,7 +9,10 @@ public record AppointmentBookingRequest(
         @NotNull(message = "Appointment time is required")
         @Future(message = "Appointment time must be in the future")
         @JsonFormat(pattern = "dd/MM/yyyy HH:mm")
-        LocalDateTime appointmentTime
+        LocalDateTime appointmentTime,
+
+        // Optional token from POST /providers/{providerId}/hold
+        String holdToken
 ) {
 
 }
\ No newline at end of file
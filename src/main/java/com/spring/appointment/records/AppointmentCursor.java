@@ -0,0 +1,25 @@
+package com.spring.appointment.records;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position after the last appointment of a page. Clients pass the encoded form back as is.
+public record AppointmentCursor(LocalDateTime appointmentTime, long appointmentId) {
+
+    public String encode() {
+        String raw = appointmentTime + "," + appointmentId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static AppointmentCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int comma = raw.indexOf(',');
+            return new AppointmentCursor(LocalDateTime.parse(raw.substring(0, comma)), Long.parseLong(raw.substring(comma + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
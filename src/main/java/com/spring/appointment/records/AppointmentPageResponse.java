@@ -0,0 +1,9 @@
+package com.spring.appointment.records;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record AppointmentPageResponse(
+        List<AppointmentResponse> appointments,
+        String nextCursor
+) {}
@@ -0,0 +1,12 @@
+package com.spring.appointment.records;
+
+import java.time.LocalDateTime;
+
+public record AppointmentParties(
+        Long appointmentId,
+        LocalDateTime appointmentTime,
+        Long customerId,
+        String customerName,
+        Long providerUserId,
+        String providerName
+) {}
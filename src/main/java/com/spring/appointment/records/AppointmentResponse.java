@@ -31,6 +31,14 @@ public record AppointmentResponse(
         );
     }
 
+    // Used by the list projections in AppointmentRepository
+    public AppointmentResponse(Long appointmentId, String customerName, String providerName,
+                               LocalDateTime appointmentTime, AppointmentStatus appointmentStatus,
+                               PaymentStatus paymentStatus) {
+        this("success", appointmentId, customerName, providerName, appointmentTime,
+                appointmentStatus, paymentStatus, null);
+    }
+
     public AppointmentResponse(String message) {
         this("error",null,null, null, null, null, null,message);
     }
@@ -0,0 +1,26 @@
+package com.spring.appointment.records;
+
+import com.spring.appointment.enums.UserRole;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+// Principal of a request authenticated by JWT; built from the token and the cached user access,
+// so no User entity is loaded per request
+public record AuthenticatedUser(
+        Long userId,
+        String email,
+        UserRole role
+) implements AuthenticatedPrincipal {
+
+    public List<GrantedAuthority> authorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
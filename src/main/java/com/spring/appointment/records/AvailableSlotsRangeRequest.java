@@ -0,0 +1,23 @@
+package com.spring.appointment.records;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.FutureOrPresent;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+public record AvailableSlotsRangeRequest(
+        @NotNull
+        @FutureOrPresent(message = "Start date must not be in the past")
+        @JsonFormat(pattern = "dd/MM/yyyy")
+        LocalDate startDate,
+
+        @NotNull
+        @JsonFormat(pattern = "dd/MM/yyyy")
+        LocalDate endDate,
+
+        // Optional filter, e.g. ["MONDAY", "FRIDAY"]; empty means every working day
+        Set<DayOfWeek> weekdays
+) {}
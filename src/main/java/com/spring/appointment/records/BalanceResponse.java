@@ -5,10 +5,10 @@ public record BalanceResponse(
         String message,
         String email,
         Long userId,
-        double balance
+        long balanceMinor
 ) {
-    public BalanceResponse(String email, Long userId, double balance) {
-        this("success", "Balance retrieved successfully", email, userId, balance);
+    public BalanceResponse(String email, Long userId, long balanceMinor) {
+        this("success", "Balance retrieved successfully", email, userId, balanceMinor);
     }
 
     public BalanceResponse( String message) {
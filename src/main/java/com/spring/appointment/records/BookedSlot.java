@@ -0,0 +1,8 @@
+package com.spring.appointment.records;
+
+import java.time.LocalDateTime;
+
+public record BookedSlot(
+        Long providerId,
+        LocalDateTime appointmentTime
+) {}
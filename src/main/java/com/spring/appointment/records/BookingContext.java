@@ -0,0 +1,19 @@
+package com.spring.appointment.records;
+
+import com.spring.appointment.enums.AppointmentStatus;
+
+public record BookingContext(
+        Long customerId,
+        String customerName,
+        Long walletId,
+        long balanceMinor,
+        Long providerId,
+        Long providerUserId,
+        String providerName,
+        Long existingAppointmentId,
+        AppointmentStatus existingStatus
+) {
+    public boolean hasExistingAppointment() {
+        return existingAppointmentId != null;
+    }
+}
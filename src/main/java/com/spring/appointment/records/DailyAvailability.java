@@ -0,0 +1,22 @@
+package com.spring.appointment.records;
+
+import com.spring.appointment.service.SlotOccupancyIndex;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public record DailyAvailability(
+        LocalDate date,
+        List<LocalTime> availableTimes
+) {
+    // Expands a free-slot bitmask into start times for that day
+    public static DailyAvailability of(LocalDate date, int freeMask) {
+        List<LocalTime> times = new ArrayList<>(Integer.bitCount(freeMask));
+        for (int slots = freeMask; slots != 0; slots &= slots - 1) {
+            times.add(SlotOccupancyIndex.slotStart(date, Integer.numberOfTrailingZeros(slots)).toLocalTime());
+        }
+        return new DailyAvailability(date, times);
+    }
+}
@@ -4,11 +4,11 @@ public record DepositResponse(
         String status,
         String message,
         Long userId,
-        double amountDeposited,
-        double newBalance
+        long amountDepositedMinor,
+        long newBalanceMinor
 ) {
-    public DepositResponse(Long userId, double amountDeposited, double newBalance) {
-        this("success", "Deposit completed successfully", userId, amountDeposited, newBalance);
+    public DepositResponse(Long userId, long amountDepositedMinor, long newBalanceMinor) {
+        this("success", "Deposit completed successfully", userId, amountDepositedMinor, newBalanceMinor);
     }
 
     public DepositResponse(String message) {
@@ -0,0 +1,20 @@
+package com.spring.appointment.records;
+
+import java.util.List;
+
+public record EarliestSlotsResponse(
+        String status,
+        String serviceType,
+        int limit,
+        List<ProviderSlot> slots,
+        long tookMillis,
+        String error
+) {
+    public static EarliestSlotsResponse of(String serviceType, int limit, List<ProviderSlot> slots, long tookMillis) {
+        return new EarliestSlotsResponse("success", serviceType, limit, slots, tookMillis, null);
+    }
+
+    public static EarliestSlotsResponse error(String serviceType, int limit, String errorMessage) {
+        return new EarliestSlotsResponse("error", serviceType, limit, null, 0, errorMessage);
+    }
+}
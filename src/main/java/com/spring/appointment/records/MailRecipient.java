@@ -0,0 +1,7 @@
+package com.spring.appointment.records;
+
+public record MailRecipient(
+        Long userId,
+        String email,
+        String name
+) {}
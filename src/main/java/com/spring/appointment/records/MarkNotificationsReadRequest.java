@@ -0,0 +1,11 @@
+package com.spring.appointment.records;
+
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+// Without ids every notification of the user is marked read
+public record MarkNotificationsReadRequest(
+        @Size(max = 500, message = "At most 500 notifications can be marked at once")
+        List<Long> notificationIds
+) {}
@@ -0,0 +1,6 @@
+package com.spring.appointment.records;
+
+public record MarkNotificationsReadResponse(
+        int marked,
+        long unreadCount
+) {}
@@ -0,0 +1,10 @@
+package com.spring.appointment.records;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record NotificationPageResponse(
+        List<NotificationResponse> notifications,
+        String nextCursor,
+        long unreadCount
+) {}
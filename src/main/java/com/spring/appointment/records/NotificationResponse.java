@@ -9,14 +9,16 @@ public record NotificationResponse(
         Long notificationId,
         String message,
         NotificationStatus status,
-        LocalDateTime createdAt
+        LocalDateTime createdAt,
+        LocalDateTime readAt
 ) {
     public static NotificationResponse from(Notification notification) {
         return new NotificationResponse(
                 notification.getNotificationId(),
-                notification.getMessage(),
+                notification.render(),
                 notification.getStatus(),
-                notification.getCreatedAt()
+                notification.getCreatedAt(),
+                notification.getReadAt()
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.spring.appointment.records;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Pushed on a provider-day stream whenever a slot of that day is taken, held or freed
+public record ProviderDayAvailability(
+        Long providerId,
+        LocalDate date,
+        List<LocalDateTime> availableSlots
+) {}
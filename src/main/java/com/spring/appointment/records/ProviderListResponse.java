@@ -1,7 +1,5 @@
 package com.spring.appointment.records;
 
-import com.spring.appointment.model.Provider;
-
 public record  ProviderListResponse(
         long providerId,
         String name,
@@ -9,15 +7,6 @@ public record  ProviderListResponse(
         String bio
 
 )  {
-    public static ProviderListResponse convert(Provider provider) {
-        return new ProviderListResponse(
-                provider.getProviderId(),
-                provider.getUser().getName(),
-                provider.getServiceType(),
-                provider.getBio()
-        );
-
-    }
 
 }
 
@@ -0,0 +1,10 @@
+package com.spring.appointment.records;
+
+import java.time.LocalDateTime;
+
+public record ProviderSlot(
+        Long providerId,
+        String providerName,
+        LocalDateTime startTime,
+        int durationMinutes
+) {}
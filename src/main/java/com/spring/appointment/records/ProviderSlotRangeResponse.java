@@ -0,0 +1,42 @@
+package com.spring.appointment.records;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record ProviderSlotRangeResponse(
+        Long providerId,
+        String providerName,
+        String serviceType,
+        LocalDate startDate,
+        LocalDate endDate,
+        int slotDurationMinutes,
+        List<DailyAvailability> days,
+        String error
+) {
+    public static ProviderSlotRangeResponse of(ProviderListResponse provider, LocalDate startDate, LocalDate endDate,
+                                               int slotDurationMinutes, List<DailyAvailability> days) {
+        return new ProviderSlotRangeResponse(
+                provider.providerId(),
+                provider.name(),
+                provider.serviceType(),
+                startDate,
+                endDate,
+                slotDurationMinutes,
+                days,
+                null
+        );
+    }
+
+    public static ProviderSlotRangeResponse error(Long providerId, LocalDate startDate, LocalDate endDate, String errorMessage) {
+        return new ProviderSlotRangeResponse(
+                providerId,
+                null,
+                null,
+                startDate,
+                endDate,
+                0,
+                null,
+                errorMessage
+        );
+    }
+}
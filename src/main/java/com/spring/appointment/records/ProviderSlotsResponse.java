@@ -1,7 +1,6 @@
 package com.spring.appointment.records;
 
 
-import com.spring.appointment.model.Provider;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -13,13 +12,13 @@ public record ProviderSlotsResponse(
         List<TimeSlot> availableSlots,
         String error
 ) {
-    // Success constructor with provider object
-    public static ProviderSlotsResponse of(Provider provider, LocalDate date,
+    // Success constructor with the provider's directory listing
+    public static ProviderSlotsResponse of(ProviderListResponse provider, LocalDate date,
                                            List<TimeSlot> availableSlots) {
         return new ProviderSlotsResponse(
-                provider.getProviderId(),
-                provider.getUser().getName(),
-                provider.getServiceType(),
+                provider.providerId(),
+                provider.name(),
+                provider.serviceType(),
                 date,
                 availableSlots,
                 null
@@ -0,0 +1,31 @@
+package com.spring.appointment.records;
+
+import com.spring.appointment.service.SlotHold;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+public record SlotHoldResponse(
+        String status,
+        String message,
+        String holdToken,
+        Long providerId,
+        LocalDateTime appointmentTime,
+        LocalDateTime expiresAt
+) {
+    public static SlotHoldResponse from(SlotHold hold) {
+        return new SlotHoldResponse(
+                "success",
+                "Slot held",
+                hold.token(),
+                hold.providerId(),
+                hold.appointmentTime(),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(hold.expiresAtMillis()), ZoneId.systemDefault())
+        );
+    }
+
+    public SlotHoldResponse(String message) {
+        this("error", message, null, null, null, null);
+    }
+}
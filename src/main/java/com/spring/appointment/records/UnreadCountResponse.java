@@ -0,0 +1,3 @@
+package com.spring.appointment.records;
+
+public record UnreadCountResponse(long unreadCount) {}
@@ -0,0 +1,12 @@
+package com.spring.appointment.records;
+
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+
+// What request authentication needs to know about a user
+public record UserAccess(
+        Long userId,
+        String email,
+        UserRole role,
+        UserStatus status
+) {}
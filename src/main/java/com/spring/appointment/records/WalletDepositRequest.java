@@ -1,10 +1,15 @@
 package com.spring.appointment.records;
 
-import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 
+// amountMinor is boxed so a client still sending the old decimal "amount" field gets a 400
+// instead of a silent deposit of 0
 public record WalletDepositRequest(
-        @NotNull
-        @Min(value = 0, message = "Deposit amount must be non-negative")
-        double amount
-) {}
\ No newline at end of file
+        @NotNull(message = WalletDepositRequest.AMOUNT_REQUIRED)
+        @Positive(message = "Deposit amount must be positive")
+        Long amountMinor
+) {
+    public static final String AMOUNT_REQUIRED =
+            "amountMinor is required, in minor units (1250 for 12.50); the decimal amount field is no longer accepted";
+}
@@ -0,0 +1,7 @@
+package com.spring.appointment.records;
+
+public record WalletSummary(
+        Long userId,
+        Long walletId,
+        int stripes
+) {}
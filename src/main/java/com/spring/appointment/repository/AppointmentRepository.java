@@ -1,14 +1,20 @@
 package com.spring.appointment.repository;
 
 
+import com.spring.appointment.enums.AppointmentStatus;
 import com.spring.appointment.model.Appointment;
+import com.spring.appointment.records.AppointmentParties;
+import com.spring.appointment.records.AppointmentResponse;
+import com.spring.appointment.records.BookedSlot;
+import com.spring.appointment.records.BookingContext;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
@@ -24,11 +30,77 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
 
-    // Get appointments for provider
-    List<Appointment> findByProviderProviderIdOrderByAppointmentTimeDesc(Long providerId);
+    // Booked times for a set of providers in one window, grouped by provider
+    @Query("SELECT new com.spring.appointment.records.BookedSlot(a.provider.providerId, a.appointmentTime) " +
+            "FROM Appointment a WHERE a.provider.providerId IN :providerIds " +
+            "AND a.appointmentTime >= :startDate AND a.appointmentTime < :endDate " +
+            "AND a.status != 'CANCELLED' " +
+            "ORDER BY a.provider.providerId")
+    List<BookedSlot> findBookedSlotsByProviders(
+            @Param("providerIds") Collection<Long> providerIds,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
 
-    // Get appointments for customer
-    List<Appointment> findByCustomerUserIdOrderByAppointmentTimeDesc(Long customerId);
+    // Names and ids the notification messages need, for a batch of outbox events
+    @Query("SELECT new com.spring.appointment.records.AppointmentParties(" +
+            "a.appointmentId, a.appointmentTime, c.userId, c.name, pu.userId, pu.name) " +
+            "FROM Appointment a JOIN a.customer c JOIN a.provider p JOIN p.user pu " +
+            "WHERE a.appointmentId IN :appointmentIds")
+    List<AppointmentParties> findPartiesByIds(@Param("appointmentIds") Collection<Long> appointmentIds);
+
+    // Appointment histories as response rows in one statement each, paged by the keyset
+    // (appointment_time, appointment_id): newest first before the cursor, soonest first after it.
+    // The time bound is spelled out on its own so it can be an index range, which the
+    // equivalent (time < t OR (time = t AND id < i)) cannot.
+    // Served by idx_appointments_customer_time / idx_appointments_provider_time; the provider is
+    // addressed by its user id so no Provider lookup is needed first.
+    @Query("SELECT new com.spring.appointment.records.AppointmentResponse(" +
+            "a.appointmentId, c.name, pu.name, a.appointmentTime, a.status, a.paymentStatus) " +
+            "FROM Appointment a JOIN a.customer c JOIN a.provider p JOIN p.user pu " +
+            "WHERE c.userId = :customerId AND a.status IN :statuses " +
+            "AND a.appointmentTime <= :time AND (a.appointmentTime < :time OR a.appointmentId < :appointmentId) " +
+            "ORDER BY a.appointmentTime DESC, a.appointmentId DESC")
+    List<AppointmentResponse> findCustomerHistoryBefore(@Param("customerId") Long customerId,
+                                                        @Param("statuses") Collection<AppointmentStatus> statuses,
+                                                        @Param("time") LocalDateTime time,
+                                                        @Param("appointmentId") long appointmentId,
+                                                        Pageable pageable);
+
+    @Query("SELECT new com.spring.appointment.records.AppointmentResponse(" +
+            "a.appointmentId, c.name, pu.name, a.appointmentTime, a.status, a.paymentStatus) " +
+            "FROM Appointment a JOIN a.customer c JOIN a.provider p JOIN p.user pu " +
+            "WHERE c.userId = :customerId AND a.status IN :statuses " +
+            "AND a.appointmentTime >= :time AND (a.appointmentTime > :time OR a.appointmentId > :appointmentId) " +
+            "ORDER BY a.appointmentTime ASC, a.appointmentId ASC")
+    List<AppointmentResponse> findCustomerHistoryAfter(@Param("customerId") Long customerId,
+                                                       @Param("statuses") Collection<AppointmentStatus> statuses,
+                                                       @Param("time") LocalDateTime time,
+                                                       @Param("appointmentId") long appointmentId,
+                                                       Pageable pageable);
+
+    @Query("SELECT new com.spring.appointment.records.AppointmentResponse(" +
+            "a.appointmentId, c.name, pu.name, a.appointmentTime, a.status, a.paymentStatus) " +
+            "FROM Appointment a JOIN a.customer c JOIN a.provider p JOIN p.user pu " +
+            "WHERE pu.userId = :userId AND a.status IN :statuses " +
+            "AND a.appointmentTime <= :time AND (a.appointmentTime < :time OR a.appointmentId < :appointmentId) " +
+            "ORDER BY a.appointmentTime DESC, a.appointmentId DESC")
+    List<AppointmentResponse> findProviderHistoryBefore(@Param("userId") Long userId,
+                                                        @Param("statuses") Collection<AppointmentStatus> statuses,
+                                                        @Param("time") LocalDateTime time,
+                                                        @Param("appointmentId") long appointmentId,
+                                                        Pageable pageable);
+
+    @Query("SELECT new com.spring.appointment.records.AppointmentResponse(" +
+            "a.appointmentId, c.name, pu.name, a.appointmentTime, a.status, a.paymentStatus) " +
+            "FROM Appointment a JOIN a.customer c JOIN a.provider p JOIN p.user pu " +
+            "WHERE pu.userId = :userId AND a.status IN :statuses " +
+            "AND a.appointmentTime >= :time AND (a.appointmentTime > :time OR a.appointmentId > :appointmentId) " +
+            "ORDER BY a.appointmentTime ASC, a.appointmentId ASC")
+    List<AppointmentResponse> findProviderHistoryAfter(@Param("userId") Long userId,
+                                                       @Param("statuses") Collection<AppointmentStatus> statuses,
+                                                       @Param("time") LocalDateTime time,
+                                                       @Param("appointmentId") long appointmentId,
+                                                       Pageable pageable);
 
     // Check if provider has active appointment at given time
     @Query("SELECT CASE WHEN COUNT(a) > 0 THEN true ELSE false END " +
@@ -41,14 +113,28 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             @Param("appointmentTime") LocalDateTime appointmentTime
     );
 
-    // Find existing appointment at same time (for handling cancelled slots)
-    Optional<Appointment> findByProviderProviderIdAndAppointmentTime(
-            Long providerId,
-            LocalDateTime appointmentTime
+    // Everything the booking path needs in one statement: customer, wallet and its balance (as in
+    // TransactionRepository.balanceOf), provider, provider user and any appointment rows already
+    // at this slot (one result row per existing appointment)
+    @Query("SELECT new com.spring.appointment.records.BookingContext(" +
+            "c.userId, c.name, w.walletId, " +
+            "(SELECT COALESCE(SUM(CASE WHEN t.type IN ('DEPOSIT', 'INCOME', 'REFUND') THEN t.amountMinor ELSE -t.amountMinor END), 0) " +
+            "FROM Transaction t WHERE t.wallet = w AND t.settledGeneration IS NULL AND t.status = 'SUCCESS') + " +
+            "(SELECT COALESCE(SUM(s.balanceMinor), 0) FROM WalletSnapshot s WHERE s.wallet = w AND s.generation = " +
+            "(SELECT MAX(s2.generation) FROM WalletSnapshot s2 WHERE s2.wallet = w)), " +
+            "p.providerId, pu.userId, pu.name, a.appointmentId, a.status) " +
+            "FROM Wallet w JOIN w.user c, Provider p JOIN p.user pu " +
+            "LEFT JOIN Appointment a ON a.provider = p AND a.appointmentTime = :appointmentTime " +
+            "WHERE c.userId = :customerId AND p.providerId = :providerId")
+    List<BookingContext> findBookingContext(
+            @Param("customerId") Long customerId,
+            @Param("providerId") Long providerId,
+            @Param("appointmentTime") LocalDateTime appointmentTime
     );
 
 
 
 
 
+
 }
@@ -0,0 +1,35 @@
+package com.spring.appointment.repository;
+
+import com.spring.appointment.model.NotificationEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface NotificationEventRepository extends JpaRepository<NotificationEvent, Long> {
+
+    // Rows another dispatcher has already claimed are skipped rather than waited on. Exhausted
+    // events are moved to notification_outbox_dead, so everything left here is still due a try.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM NotificationEvent e WHERE e.availableAt <= :now ORDER BY e.eventId")
+    List<NotificationEvent> claimBatch(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Copies the event, as last flushed, to the dead-letter table; the caller deletes it here
+    @Modifying
+    @Query(value = "INSERT INTO notification_outbox_dead " +
+            "(event_id, type, appointment_id, actor_id, attempts, created_at, failed_at, last_error) " +
+            "SELECT event_id, type, appointment_id, actor_id, attempts, created_at, :failedAt, :lastError " +
+            "FROM notification_outbox WHERE event_id = :eventId", nativeQuery = true)
+    int copyToDeadLetter(@Param("eventId") Long eventId,
+                         @Param("failedAt") LocalDateTime failedAt,
+                         @Param("lastError") String lastError);
+}
@@ -1,10 +1,65 @@
 package com.spring.appointment.repository;
 
+import com.spring.appointment.enums.NotificationStatus;
 import com.spring.appointment.model.Notification;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
-    List<Notification> findByUserUserIdOrderByCreatedAtDesc(Long userId);
+    // Newest first; (created_at, id) is the keyset cursor, served by idx_notifications_user_created
+    @Query("SELECT n FROM Notification n WHERE n.user.userId = :userId ORDER BY n.createdAt DESC, n.notificationId DESC")
+    List<Notification> findLatest(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT n FROM Notification n WHERE n.user.userId = :userId " +
+            "AND n.createdAt <= :createdAt AND (n.createdAt < :createdAt OR n.notificationId < :notificationId) " +
+            "ORDER BY n.createdAt DESC, n.notificationId DESC")
+    List<Notification> findOlderThan(@Param("userId") Long userId,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("notificationId") Long notificationId,
+                                     Pageable pageable);
+
+    @Query("SELECT COUNT(n) FROM Notification n WHERE n.user.userId = :userId AND n.readAt IS NULL")
+    long countUnread(@Param("userId") Long userId);
+
+    // Read state only; the delivery status is left to EmailDeliveryService
+    @Modifying
+    @Query("UPDATE Notification n SET n.readAt = :readAt WHERE n.user.userId = :userId AND n.readAt IS NULL")
+    int markAllRead(@Param("userId") Long userId, @Param("readAt") LocalDateTime readAt);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.readAt = :readAt " +
+            "WHERE n.user.userId = :userId AND n.notificationId IN :ids AND n.readAt IS NULL")
+    int markRead(@Param("userId") Long userId, @Param("ids") Collection<Long> ids, @Param("readAt") LocalDateTime readAt);
+
+    // Pending emails grouped by recipient; rows another instance is claiming or mailing are skipped
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT n FROM Notification n WHERE n.status = 'PENDING' " +
+            "AND (n.claimedUntil IS NULL OR n.claimedUntil < :now) ORDER BY n.user.userId, n.notificationId")
+    List<Notification> claimPending(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.claimedUntil = :until WHERE n.notificationId IN :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    // Only rows still PENDING, so an outcome recorded once is not overwritten by a later one
+    @Modifying
+    @Query("UPDATE Notification n SET n.status = :status, n.claimedUntil = NULL " +
+            "WHERE n.notificationId IN :ids AND n.status = 'PENDING'")
+    int updateStatus(@Param("ids") Collection<Long> ids, @Param("status") NotificationStatus status);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.claimedUntil = NULL WHERE n.notificationId IN :ids")
+    int releaseClaims(@Param("ids") Collection<Long> ids);
 }
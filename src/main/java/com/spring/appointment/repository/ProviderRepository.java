@@ -1,11 +1,28 @@
 package com.spring.appointment.repository;
 
 import com.spring.appointment.model.Provider;
+import com.spring.appointment.records.ProviderListResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 
 public interface ProviderRepository extends JpaRepository<Provider, Long> {
         Optional<Provider> findByUserUserId(long userId);
+
+        // the whole directory with each provider's name, in a stable order
+        @Query("SELECT new com.spring.appointment.records.ProviderListResponse(p.providerId, u.name, p.serviceType, p.bio) " +
+                "FROM Provider p JOIN p.user u ORDER BY p.providerId")
+        List<ProviderListResponse> findAllListings();
+
+        @Query("SELECT new com.spring.appointment.records.ProviderListResponse(p.providerId, u.name, p.serviceType, p.bio) " +
+                "FROM Provider p JOIN p.user u WHERE p.providerId = :providerId")
+        Optional<ProviderListResponse> findListingById(@Param("providerId") Long providerId);
+
+        @Query("SELECT new com.spring.appointment.records.ProviderListResponse(p.providerId, u.name, p.serviceType, p.bio) " +
+                "FROM Provider p JOIN p.user u WHERE LOWER(p.serviceType) = LOWER(:serviceType)")
+        List<ProviderListResponse> findListingsByServiceType(@Param("serviceType") String serviceType);
 }
@@ -1,7 +1,45 @@
 package com.spring.appointment.repository;
 
 import com.spring.appointment.model.Transaction;
+import com.spring.appointment.records.LedgerTotals;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
+    // Latest snapshot plus the entries not folded into it, in one statement so the snapshot job
+    // cannot commit between the two halves: deposits, income and refunds add, payments and
+    // deductions subtract
+    @Query("SELECT COALESCE(SUM(CASE WHEN t.type IN ('DEPOSIT', 'INCOME', 'REFUND') THEN t.amountMinor ELSE -t.amountMinor END), 0) + " +
+            "(SELECT COALESCE(SUM(s.balanceMinor), 0) FROM WalletSnapshot s WHERE s.wallet.walletId = :walletId AND s.generation = " +
+            "(SELECT MAX(s2.generation) FROM WalletSnapshot s2 WHERE s2.wallet.walletId = :walletId)) " +
+            "FROM Transaction t WHERE t.wallet.walletId = :walletId AND t.settledGeneration IS NULL AND t.status = 'SUCCESS'")
+    long balanceOf(@Param("walletId") Long walletId);
+
+    // Per stripe, the entries not yet folded into a snapshot
+    @Query("SELECT new com.spring.appointment.records.LedgerTotals(t.stripe, " +
+            "COALESCE(SUM(CASE WHEN t.type IN ('DEPOSIT', 'INCOME', 'REFUND') THEN t.amountMinor ELSE -t.amountMinor END), 0)) " +
+            "FROM Transaction t WHERE t.wallet.walletId = :walletId AND t.settledGeneration IS NULL AND t.status = 'SUCCESS' " +
+            "GROUP BY t.stripe")
+    List<LedgerTotals> sumUnsettledByStripe(@Param("walletId") Long walletId);
+
+    // Per stripe, the entries a snapshot generation folded in
+    @Query("SELECT new com.spring.appointment.records.LedgerTotals(t.stripe, " +
+            "COALESCE(SUM(CASE WHEN t.type IN ('DEPOSIT', 'INCOME', 'REFUND') THEN t.amountMinor ELSE -t.amountMinor END), 0)) " +
+            "FROM Transaction t WHERE t.wallet.walletId = :walletId AND t.settledGeneration = :generation AND t.status = 'SUCCESS' " +
+            "GROUP BY t.stripe")
+    List<LedgerTotals> sumSettledByStripe(@Param("walletId") Long walletId, @Param("generation") long generation);
+
+    // Marks every committed entry not yet in a snapshot as folded into this generation
+    @Modifying
+    @Query("UPDATE Transaction t SET t.settledGeneration = :generation " +
+            "WHERE t.wallet.walletId = :walletId AND t.settledGeneration IS NULL AND t.status = 'SUCCESS'")
+    int settle(@Param("walletId") Long walletId, @Param("generation") long generation);
+
+    @Query("SELECT DISTINCT t.wallet.walletId FROM Transaction t WHERE t.settledGeneration IS NULL")
+    List<Long> findWalletIdsWithUnsettledEntries();
 }
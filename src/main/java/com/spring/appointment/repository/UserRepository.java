@@ -1,12 +1,34 @@
 package com.spring.appointment.repository;
 
 import com.spring.appointment.model.User;
+import com.spring.appointment.records.MailRecipient;
+import com.spring.appointment.records.UserAccess;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
+    @Query("SELECT new com.spring.appointment.records.UserAccess(u.userId, u.email, u.role, u.status) " +
+            "FROM User u WHERE u.userId = :userId")
+    Optional<UserAccess> findAccessById(@Param("userId") Long userId);
+
+    // Runs in its own transaction; login calls it outside of one
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.userId = :userId")
+    int updatePassword(@Param("userId") Long userId, @Param("password") String password);
+
     boolean existsByEmail( String email);
+
+    @Query("SELECT new com.spring.appointment.records.MailRecipient(u.userId, u.email, u.name) " +
+            "FROM User u WHERE u.userId IN :userIds")
+    List<MailRecipient> findMailRecipientsByIds(@Param("userIds") Collection<Long> userIds);
 }
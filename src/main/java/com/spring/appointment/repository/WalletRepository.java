@@ -2,12 +2,33 @@ package com.spring.appointment.repository;
 
 
 import com.spring.appointment.model.Wallet;
+import com.spring.appointment.records.WalletSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
     Optional<Wallet> findByUserUserId(Long userId);
-}
+
+    @Query("SELECT new com.spring.appointment.records.WalletSummary(w.user.userId, w.walletId, w.stripes) " +
+            "FROM Wallet w WHERE w.user.userId IN :userIds")
+    List<WalletSummary> findSummariesByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT w.stripes FROM Wallet w WHERE w.walletId = :walletId")
+    Optional<Integer> findStripesById(@Param("walletId") Long walletId);
+
+    // Serializes debits on one wallet (stripe 0 of a striped one); credits never take this lock
+    @Query(value = "SELECT wallet_id FROM wallets WHERE wallet_id = :walletId FOR UPDATE", nativeQuery = true)
+    Long lockById(@Param("walletId") Long walletId);
+
+    // Null instead of waiting when another transaction holds the lock, for a debit that must lock a
+    // stripe out of ascending order. Skipping rather than failing leaves the transaction usable.
+    @Query(value = "SELECT wallet_id FROM wallets WHERE wallet_id = :walletId FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Long tryLockById(@Param("walletId") Long walletId);
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.spring.appointment.repository;
+
+import com.spring.appointment.model.WalletSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface WalletSnapshotRepository extends JpaRepository<WalletSnapshot, Long> {
+
+    // The most recent snapshot of every stripe; stripes are always snapshotted together
+    @Query("SELECT s FROM WalletSnapshot s WHERE s.wallet.walletId = :walletId AND s.generation = " +
+            "(SELECT MAX(s2.generation) FROM WalletSnapshot s2 WHERE s2.wallet.walletId = :walletId)")
+    List<WalletSnapshot> findLatestByWalletId(@Param("walletId") Long walletId);
+}
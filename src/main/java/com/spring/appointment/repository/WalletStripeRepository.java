@@ -0,0 +1,18 @@
+package com.spring.appointment.repository;
+
+import com.spring.appointment.model.WalletStripe;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface WalletStripeRepository extends JpaRepository<WalletStripe, Long> {
+
+    @Query(value = "SELECT stripe_id FROM wallet_stripes WHERE wallet_id = :walletId AND stripe = :stripe FOR UPDATE",
+            nativeQuery = true)
+    Long lockByWalletAndStripe(@Param("walletId") Long walletId, @Param("stripe") int stripe);
+
+    // Null while another transaction holds it; see WalletRepository.tryLockById
+    @Query(value = "SELECT stripe_id FROM wallet_stripes WHERE wallet_id = :walletId AND stripe = :stripe FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    Long tryLockByWalletAndStripe(@Param("walletId") Long walletId, @Param("stripe") int stripe);
+}
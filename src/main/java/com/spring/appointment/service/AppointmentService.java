@@ -3,19 +3,29 @@ package com.spring.appointment.service;
 import com.spring.appointment.enums.*;
 import com.spring.appointment.model.*;
 import com.spring.appointment.records.AppointmentBookingRequest;
+import com.spring.appointment.records.AppointmentCursor;
+import com.spring.appointment.records.AppointmentPageResponse;
+import com.spring.appointment.records.AppointmentResponse;
+import com.spring.appointment.records.BookingContext;
+import com.spring.appointment.records.DailyAvailability;
+import com.spring.appointment.records.ProviderDayAvailability;
 import com.spring.appointment.repository.*;
 import lombok.RequiredArgsConstructor;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional(rollbackFor = Exception.class)
@@ -24,102 +34,198 @@ import java.util.stream.Collectors;
 public class AppointmentService {
     private final ProviderRepository providerRepository;
     private final UserRepository userRepository;
-    private final WalletRepository walletRepository;
     private final AppointmentRepository appointmentRepository;
-    private final TransactionRepository transactionRepository;
+    private final WalletLedger walletLedger;
     private final NotificationService notificationService;
-    private static final double APPOINTMENT_FEE=50.0;
-
-    public List<Provider> getAllProviders() {
-        return providerRepository.findAll();
-    }
-
-    public List<Appointment> getAppointmentsForUser(long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    private final SlotOccupancyIndex slotOccupancyIndex;
+    private final BookingLockManager bookingLockManager;
+    private final SlotHoldRegistry slotHoldRegistry;
+    private final LiveEventBus liveEventBus;
+    private final TransactionTemplate transactionTemplate;
+    private static final long APPOINTMENT_FEE = Money.ofMajor(50);
+    static final int BOOKING_HORIZON_DAYS = 30;
+    static final int MIN_HOURS_IN_ADVANCE = 1;
+    public static final int MAX_PAGE_SIZE = 100;
+    // latest DATETIME MySQL stores
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    // One page of the caller's history, continuing after the cursor when one is given. The role
+    // comes from the authenticated principal, so a page costs the one projection query.
+    @Transactional(readOnly = true)
+    public AppointmentPageResponse getAppointmentsForUser(long userId, UserRole role, AppointmentWindow window,
+                                                          AppointmentStatus status, String cursor, int limit) {
+        if (role != UserRole.PROVIDER && role != UserRole.CUSTOMER) {
+            throw new IllegalArgumentException("Invalid user role");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Set<AppointmentStatus> statuses = status != null ? EnumSet.of(status) : EnumSet.allOf(AppointmentStatus.class);
+        boolean soonestFirst = window == AppointmentWindow.UPCOMING;
+        // first page: upcoming starts at now (inclusive), past just before now, all at the end of time;
+        // ids are positive, so 0 and MAX_VALUE put the boundary on the right side of equal times
+        AppointmentCursor from;
+        if (cursor != null && !cursor.isBlank()) {
+            from = AppointmentCursor.decode(cursor);
+        } else if (window == AppointmentWindow.ALL) {
+            from = new AppointmentCursor(END_OF_TIME, Long.MAX_VALUE);
+        } else {
+            from = new AppointmentCursor(LocalDateTime.now(), 0L);
+        }
 
-        if (user.getRole() == UserRole.PROVIDER) {
-            Provider provider = providerRepository.findByUserUserId(userId)
-                    .orElseThrow(() -> new IllegalArgumentException("Provider not found"));
-            return appointmentRepository.findByProviderProviderIdOrderByAppointmentTimeDesc(provider.getProviderId());
-        } else if (user.getRole() == UserRole.CUSTOMER) {
-            return appointmentRepository.findByCustomerUserIdOrderByAppointmentTimeDesc(userId);
+        // one extra row tells whether another page follows
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<AppointmentResponse> appointments;
+        if (role == UserRole.PROVIDER) {
+            appointments = soonestFirst
+                    ? appointmentRepository.findProviderHistoryAfter(userId, statuses, from.appointmentTime(), from.appointmentId(), page)
+                    : appointmentRepository.findProviderHistoryBefore(userId, statuses, from.appointmentTime(), from.appointmentId(), page);
         } else {
-            throw new IllegalArgumentException("Invalid user role");
+            appointments = soonestFirst
+                    ? appointmentRepository.findCustomerHistoryAfter(userId, statuses, from.appointmentTime(), from.appointmentId(), page)
+                    : appointmentRepository.findCustomerHistoryBefore(userId, statuses, from.appointmentTime(), from.appointmentId(), page);
         }
+
+        String nextCursor = null;
+        if (appointments.size() > limit) {
+            appointments = appointments.subList(0, limit);
+            AppointmentResponse last = appointments.get(limit - 1);
+            nextCursor = new AppointmentCursor(last.appointmentTime(), last.appointmentId()).encode();
+        }
+        return new AppointmentPageResponse(appointments, nextCursor);
     }
 
 
+    // Runs outside a transaction so contenders for the same slot are settled in memory
+    // before any of them takes a connection; the booking itself runs in its own transaction
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Appointment bookAppointment(long customerId, long providerId, AppointmentBookingRequest request) {
         // 1. VALIDATE APPOINTMENT TIME
         validateAppointmentTime(request.appointmentTime());
 
-        // 2. FIND ENTITIES
-        User customer = userRepository.findById(customerId)
-                .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + customerId));
+        // 2. A HOLDER ALREADY OWNS THE SLOT: NOBODY ELSE CAN BOOK IT, SO SKIP THE CONFLICT CHECKS
+        if (slotHoldRegistry.isHeldBy(request.holdToken(), customerId, providerId, request.appointmentTime())) {
+            Appointment appointment = createBookingInTransaction(customerId, providerId, request);
+            slotHoldRegistry.release(request.holdToken(), customerId);
+            return appointment;
+        }
 
-        Provider provider = providerRepository.findById(providerId)
-                .orElseThrow(() -> new IllegalArgumentException("Provider not found with id: " + providerId));
+        // 3. REJECT SLOTS THAT ARE HELD OR ALREADY TAKEN, THEN QUEUE ON THE SLOT LOCK
+        rejectIfSlotUnavailable(customerId, providerId, request.appointmentTime());
+        return bookingLockManager.withSlotLock(providerId, request.appointmentTime(), () -> {
+            // the previous lock holder may have just taken the slot
+            rejectIfSlotUnavailable(customerId, providerId, request.appointmentTime());
+            return createBookingInTransaction(customerId, providerId, request);
+        });
+    }
 
-        Wallet customerWallet = walletRepository.findByUserUserId(customerId)
-                .orElseThrow(() -> new IllegalArgumentException("Wallet not found for user id: " + customerId));
+    // Leases the slot to the customer for a short time; placed under the slot lock so a hold
+    // can never be granted while someone else's booking for that slot is in flight
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SlotHold holdSlot(long customerId, long providerId, LocalDateTime appointmentTime) {
+        validateAppointmentTime(appointmentTime);
+        SlotHold hold = bookingLockManager.withSlotLock(providerId, appointmentTime, () -> {
+            rejectIfSlotTaken(providerId, appointmentTime);
+            return slotHoldRegistry.place(customerId, providerId, appointmentTime);
+        });
+        publishAvailability(providerId, appointmentTime.toLocalDate());
+        return hold;
+    }
 
-        // 3. CHECK BALANCE
-        if (customerWallet.getBalance() < APPOINTMENT_FEE) {
-            throw new IllegalArgumentException("Insufficient balance in wallet! Fee required: " + APPOINTMENT_FEE);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean releaseHold(String holdToken, long customerId) {
+        SlotHold released = slotHoldRegistry.release(holdToken, customerId);
+        if (released == null) {
+            return false;
         }
+        publishAvailability(released.providerId(), released.appointmentTime().toLocalDate());
+        return true;
+    }
 
-        // 4. CHECK FOR EXISTING APPOINTMENT AT SAME TIME
-        Optional<Appointment> existingAppointment = appointmentRepository.findByProviderProviderIdAndAppointmentTime(
+    private Appointment createBooking(long customerId, long providerId, AppointmentBookingRequest request) {
+        // 4. LOAD CUSTOMER, WALLET, PROVIDER AND ANY ROW FOR THIS SLOT IN ONE QUERY
+        List<BookingContext> rows = appointmentRepository.findBookingContext(
+                customerId,
                 providerId,
                 request.appointmentTime()
         );
+        if (rows.isEmpty()) {
+            throw missingBookingEntity(customerId, providerId);
+        }
+        BookingContext context = rows.get(0);
 
-        if (existingAppointment.isPresent()) {
-            Appointment existing = existingAppointment.get();
-
-            if (existing.getStatus() == null) {
-                log.error("Appointment {} has null status", existing.getAppointmentId());
-                throw new IllegalArgumentException("Invalid appointment data. Please try again.");
-            }
+        // 5. CHECK BALANCE (read by the context query)
+        if (context.balanceMinor() < APPOINTMENT_FEE) {
+            throw new IllegalArgumentException("Insufficient balance in wallet! Fee required: " + Money.format(APPOINTMENT_FEE));
+        }
 
-            if (existing.getStatus() == AppointmentStatus.CANCELLED) {
-                // Validate reused appointment
-                if (existing.getAppointmentTime().isBefore(LocalDateTime.now())) {
-                    throw new IllegalArgumentException("Cannot reuse past cancelled appointment.");
-                }
+        // References only carry the id, so no further SELECTs are issued for them
+        User customer = userRepository.getReferenceById(customerId);
 
-                // REUSE the cancelled appointment
-                existing.setCustomer(customer);
-                existing.setStatus(AppointmentStatus.PENDING);
-                existing.setPaymentStatus(PaymentStatus.UNPAID);
-                existing.setUpdatedAt(LocalDateTime.now());
+        // 6. CHECK FOR EXISTING APPOINTMENT AT SAME TIME
+        Long cancelledAppointmentId = null;
+        for (BookingContext row : rows) {
+            if (!row.hasExistingAppointment()) {
+                continue;
+            }
 
-                Appointment savedAppointment = appointmentRepository.save(existing);
-                log.info("Reused cancelled appointment: {}", existing.getAppointmentId());
+            if (row.existingStatus() == null) {
+                log.error("Appointment {} has null status", row.existingAppointmentId());
+                throw new IllegalArgumentException("Invalid appointment data. Please try again.");
+            }
 
-                notificationService.createBookingNotifications(savedAppointment);
-                return savedAppointment;
-            } else {
+            if (row.existingStatus() != AppointmentStatus.CANCELLED) {
                 // Active appointment exists - slot is taken
                 throw new IllegalArgumentException("This time slot is no longer available.");
             }
+            cancelledAppointmentId = row.existingAppointmentId();
         }
 
-        // 5. CREATE AND SAVE NEW APPOINTMENT
+        if (cancelledAppointmentId != null) {
+            Appointment existing = appointmentRepository.findById(cancelledAppointmentId)
+                    .orElseThrow(() -> new IllegalArgumentException("This time slot was just taken. Please choose another time."));
+
+            // Validate reused appointment
+            if (existing.getAppointmentTime().isBefore(LocalDateTime.now())) {
+                throw new IllegalArgumentException("Cannot reuse past cancelled appointment.");
+            }
+
+            // REUSE the cancelled appointment
+            existing.setCustomer(customer);
+            existing.setStatus(AppointmentStatus.PENDING);
+            existing.setPaymentStatus(PaymentStatus.UNPAID);
+            existing.setUpdatedAt(LocalDateTime.now());
+
+            Appointment savedAppointment = appointmentRepository.save(existing);
+            log.info("Reused cancelled appointment: {}", existing.getAppointmentId());
+            slotOccupancyIndex.markBooked(providerId, savedAppointment.getAppointmentTime());
+            publishAvailability(providerId, savedAppointment.getAppointmentTime().toLocalDate());
+
+            notificationService.createBookingNotifications(savedAppointment);
+            return savedAppointment;
+        }
+
+        // 7. CREATE AND SAVE NEW APPOINTMENT
         Appointment appointment = new Appointment();
         appointment.setCustomer(customer);
-        appointment.setProvider(provider);
+        appointment.setProvider(providerRepository.getReferenceById(providerId));
         appointment.setAppointmentTime(request.appointmentTime());
         appointment.setStatus(AppointmentStatus.PENDING);
 
-        try {
-            Appointment savedAppointment = appointmentRepository.save(appointment);
-            log.info("Appointment booked: {}", savedAppointment.getAppointmentId());
+        Appointment savedAppointment = appointmentRepository.save(appointment);
+        log.info("Appointment booked: {}", savedAppointment.getAppointmentId());
+        slotOccupancyIndex.markBooked(providerId, savedAppointment.getAppointmentTime());
+        publishAvailability(providerId, savedAppointment.getAppointmentTime().toLocalDate());
 
-            notificationService.createBookingNotifications(savedAppointment);
-            return savedAppointment;
+        notificationService.createBookingNotifications(savedAppointment);
+        return savedAppointment;
+    }
 
+    // With pooled ids the INSERT only goes out at flush, so a slot taken by a concurrent booking
+    // (e.g. a hold-path booking, which skips the slot lock) fails the unique key at commit
+    private Appointment createBookingInTransaction(long customerId, long providerId, AppointmentBookingRequest request) {
+        try {
+            return transactionTemplate.execute(status -> createBooking(customerId, providerId, request));
         } catch (DataIntegrityViolationException e) {
             log.warn("Duplicate booking prevented by database constraint for provider {} at {}",
                     providerId, request.appointmentTime());
@@ -138,6 +244,8 @@ public class AppointmentService {
         }
     }
 
+    // READ COMMITTED so the wallet debit sees debits committed while it waited for the wallet lock
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
     public Appointment confirmAppointment(long appointmentId,long userId) {
         Appointment appointment=appointmentRepository.findById(appointmentId).orElseThrow(()->new IllegalArgumentException("Appointment not found with id: "+appointmentId));
 
@@ -156,85 +264,99 @@ public class AppointmentService {
             throw new IllegalArgumentException("Only pending appointments can be confirmed");
         }
 
-        // Process payment when confirming
-        Wallet customerWallet = appointment.getCustomer().getWallet();
-        Wallet providerWallet = provider.getUser().getWallet();
+        // Process payment when confirming: both sides are ledger entries, only the customer's wallet is locked
+        long customerWalletId = walletLedger.walletIdOf(appointment.getCustomer().getUserId());
+        long providerWalletId = walletLedger.walletIdOf(provider.getUser().getUserId());
 
         // Deduct from customer
-        customerWallet.setBalance(customerWallet.getBalance() - APPOINTMENT_FEE);
+        if (!walletLedger.tryDebit(customerWalletId, TransactionType.PAYMENT, APPOINTMENT_FEE, appointment)) {
+            throw new IllegalArgumentException("Customer has insufficient balance! Fee required: " + Money.format(APPOINTMENT_FEE));
+        }
 
         // Add to provider
-        providerWallet.setBalance(providerWallet.getBalance() + APPOINTMENT_FEE);
-
-        // Save wallets
-        walletRepository.save(customerWallet);
-        walletRepository.save(providerWallet);
+        walletLedger.credit(providerWalletId, TransactionType.INCOME, APPOINTMENT_FEE, appointment);
 
         // Confirm appointment
         appointment.setStatus(AppointmentStatus.CONFIRMED);
         appointment.setPaymentStatus(PaymentStatus.PAID);
 
-        // Create customer transaction
-        Transaction customerTransaction = Transaction.builder()
-                .wallet(customerWallet)
-                .appointment(appointment)
-                .amount(APPOINTMENT_FEE)
-                .type(TransactionType.PAYMENT)
-                .status(TransactionStatus.SUCCESS)
-                .build();
-
-        // Create provider transaction
-        Transaction providerTransaction = Transaction.builder()
-                .wallet(providerWallet)
-                .appointment(appointment)
-                .amount(APPOINTMENT_FEE)
-                .type(TransactionType.INCOME)
-                .status(TransactionStatus.SUCCESS)
-                .build();
-
-        transactionRepository.saveAll(List.of(customerTransaction, providerTransaction));
         // Create notifications for confirmation
         notificationService.createConfirmationNotifications(appointment);
+        slotOccupancyIndex.markBooked(provider.getProviderId(), appointment.getAppointmentTime());
 
         return appointmentRepository.save(appointment);
     }
 
+    // Served from the in-memory slot index; only a day's first read goes to the database,
+    // so no transaction is opened here. Held slots are hidden as well.
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public int getAvailableSlotMask(Long providerId, LocalDate date) {
+        return slotOccupancyIndex.freeMask(providerId, date, LocalDateTime.now())
+                & ~slotHoldRegistry.heldMask(providerId, date);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProviderDayAvailability getDayAvailability(Long providerId, LocalDate date) {
+        return new ProviderDayAvailability(providerId, date, getAvailableTimeSlots(providerId, date));
+    }
+
+    // Pushed to the provider-day's stream after commit, and after the slot index has applied the change
+    private void publishAvailability(long providerId, LocalDate date) {
+        liveEventBus.publishToProviderDay(providerId, date, "slots", () -> getDayAvailability(providerId, date));
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<LocalDateTime> getAvailableTimeSlots(Long providerId, LocalDate date) {
-        LocalDateTime startOfDay = date.atTime(9, 0);    // 9 AM
-        LocalDateTime endOfDay = date.atTime(18, 0);     // 6 PM
+        int freeMask = getAvailableSlotMask(providerId, date);
 
-        // Extend end time for query to include all relevant appointments
-        LocalDateTime queryEndTime = endOfDay.plusMinutes(30);
+        List<LocalDateTime> availableSlots = new ArrayList<>(Integer.bitCount(freeMask));
+        for (int slots = freeMask; slots != 0; slots &= slots - 1) {
+            availableSlots.add(SlotOccupancyIndex.slotStart(date, Integer.numberOfTrailingZeros(slots)));
+        }
+        return availableSlots;
+    }
 
-        // Get all booked times for the day
-        List<LocalDateTime> bookedTimes = appointmentRepository.findBookedTimesByProviderAndDate(
-                providerId, startOfDay, queryEndTime
-        );
 
-        // Generate all possible time slots (every 30 minutes)
-        List<LocalDateTime> allTimeSlots = new ArrayList<>();
-        LocalDateTime currentSlot = startOfDay;
+    // Free slots for every bookable day in the window, built from one range query at most.
+    // The window is clamped to today .. booking horizon; weekends and fully past days are skipped.
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<DailyAvailability> getAvailableSlotsInRange(Long providerId, LocalDate startDate, LocalDate endDate,
+                                                            Set<DayOfWeek> weekdays) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
 
-        while (currentSlot.isBefore(endOfDay)) {
-            // Only add future time slots
-            if (currentSlot.isAfter(LocalDateTime.now())) {
-                allTimeSlots.add(currentSlot);
-            }
-            currentSlot = currentSlot.plusMinutes(30);  // 30-minute intervals
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate from = startDate.isBefore(now.toLocalDate()) ? now.toLocalDate() : startDate;
+        LocalDate lastBookableDay = now.toLocalDate().plusDays(BOOKING_HORIZON_DAYS);
+        LocalDate to = endDate.isAfter(lastBookableDay) ? lastBookableDay : endDate;
+        if (to.isBefore(from)) {
+            return List.of();
         }
 
-        // Remove booked time slots
-        Set<LocalDateTime> bookedSet = new HashSet<>(bookedTimes);
+        int[] occupied = slotOccupancyIndex.occupiedMasks(providerId, from, to);
 
-        return allTimeSlots.stream()
-                .filter(slot -> !bookedSet.contains(slot))
-                .collect(Collectors.toList());
+        List<DailyAvailability> days = new ArrayList<>(occupied.length);
+        for (int day = 0; day < occupied.length; day++) {
+            LocalDate date = from.plusDays(day);
+            DayOfWeek dayOfWeek = date.getDayOfWeek();
+            if (dayOfWeek.getValue() > 5 || (weekdays != null && !weekdays.isEmpty() && !weekdays.contains(dayOfWeek))) {
+                continue;
+            }
+            int futureSlots = SlotOccupancyIndex.futureMask(date, now);
+            if (futureSlots == 0) {
+                continue;
+            }
+            int heldSlots = slotHoldRegistry.heldMask(providerId, date);
+            days.add(DailyAvailability.of(date, ~(occupied[day] | heldSlots) & futureSlots));
+        }
+        return days;
     }
 
 
+    @Transactional(rollbackFor = Exception.class, isolation = Isolation.READ_COMMITTED)
     public Appointment cancelAppointment(long appointmentId, long userId) {
         Appointment appointment = appointmentRepository.findById(appointmentId).orElseThrow(() -> new IllegalArgumentException("Appointment not found with id: " + appointmentId));
-        User user = userRepository.findById(userId).orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
 
         // Check if user is either the customer or the provider
         boolean isCustomer = appointment.getCustomer().getUserId().equals(userId);
@@ -257,56 +379,59 @@ public class AppointmentService {
         if (appointment.getStatus() == AppointmentStatus.CONFIRMED &&
                 appointment.getPaymentStatus() == PaymentStatus.PAID) {
 
-            // Refund customer
-            Wallet customerWallet = appointment.getCustomer().getWallet();
-            customerWallet.setBalance(customerWallet.getBalance() + APPOINTMENT_FEE);
+            long customerWalletId = walletLedger.walletIdOf(appointment.getCustomer().getUserId());
+            long providerWalletId = walletLedger.walletIdOf(appointment.getProvider().getUser().getUserId());
 
             // Deduct from provider
-            Wallet providerWallet = appointment.getProvider().getUser().getWallet();
-            providerWallet.setBalance(providerWallet.getBalance() - APPOINTMENT_FEE);
-
-            // Save wallets
-            walletRepository.saveAll(List.of(customerWallet, providerWallet));
-
-            // Create refund transactions
-            Transaction customerRefund = Transaction.builder()
-                    .wallet(customerWallet)
-                    .appointment(appointment)
-                    .amount(APPOINTMENT_FEE)
-                    .type(TransactionType.REFUND)
-                    .status(TransactionStatus.SUCCESS)
-                    .build();
-
-            Transaction providerDeduction = Transaction.builder()
-                    .wallet(providerWallet)
-                    .appointment(appointment)
-                    .amount(APPOINTMENT_FEE)
-                    .type(TransactionType.DEDUCTION)
-                    .status(TransactionStatus.SUCCESS)
-                    .build();
+            if (!walletLedger.tryDebit(providerWalletId, TransactionType.DEDUCTION, APPOINTMENT_FEE, appointment)) {
+                throw new IllegalArgumentException("Provider has insufficient balance to refund this appointment");
+            }
 
-            transactionRepository.saveAll(List.of(customerRefund, providerDeduction));
+            // Refund customer
+            walletLedger.credit(customerWalletId, TransactionType.REFUND, APPOINTMENT_FEE, appointment);
         }
 
         appointment.setStatus(AppointmentStatus.CANCELLED);
         Appointment cancelledAppointment = appointmentRepository.save(appointment);
+        slotOccupancyIndex.markReleased(appointment.getProvider().getProviderId(), appointment.getAppointmentTime());
+        publishAvailability(appointment.getProvider().getProviderId(), appointment.getAppointmentTime().toLocalDate());
 
         // Create notifications for cancellation
-        notificationService.createCancellationNotifications(cancelledAppointment, user);
+        notificationService.createCancellationNotifications(cancelledAppointment, userId);
         return cancelledAppointment;
 
     }
 
-    private void validateAppointmentTime(LocalDateTime appointmentTime) {
+    // Only reached when the booking-context query found nothing, so the extra lookups are off the hot path
+    private IllegalArgumentException missingBookingEntity(long customerId, long providerId) {
+        if (!userRepository.existsById(customerId)) {
+            return new IllegalArgumentException("User not found with id: " + customerId);
+        }
+        if (!providerRepository.existsById(providerId)) {
+            return new IllegalArgumentException("Provider not found with id: " + providerId);
+        }
+        return new IllegalArgumentException("Wallet not found for user id: " + customerId);
+    }
 
-        if (appointmentTime.isBefore(LocalDateTime.now().plusHours(1))) {
-            throw new IllegalArgumentException("Appointments must be booked at least 1 hour in advance");
+    private void rejectIfSlotUnavailable(long customerId, long providerId, LocalDateTime appointmentTime) {
+        if (slotHoldRegistry.isHeldByOther(providerId, appointmentTime, customerId)) {
+            throw new IllegalArgumentException("This time slot is currently held by another customer.");
         }
+        rejectIfSlotTaken(providerId, appointmentTime);
+    }
 
-        // Only allow appointments on the hour or half hour
-        int minute = appointmentTime.getMinute();
-        if (minute != 0 && minute != 30) {
-            throw new IllegalArgumentException("Appointments can only be booked on the hour or half-hour");
+    private void rejectIfSlotTaken(long providerId, LocalDateTime appointmentTime) {
+        int slot = SlotOccupancyIndex.slotIndex(appointmentTime);
+        int occupied = slotOccupancyIndex.occupiedMask(providerId, appointmentTime.toLocalDate());
+        if (slot >= 0 && (occupied & (1 << slot)) != 0) {
+            throw new IllegalArgumentException("This time slot is no longer available.");
+        }
+    }
+
+    private void validateAppointmentTime(LocalDateTime appointmentTime) {
+
+        if (appointmentTime.isBefore(LocalDateTime.now().plusHours(MIN_HOURS_IN_ADVANCE))) {
+            throw new IllegalArgumentException("Appointments must be booked at least 1 hour in advance");
         }
 
         // Business hours validation
@@ -315,13 +440,19 @@ public class AppointmentService {
             throw new IllegalArgumentException("Appointments can only be booked between 9:00 AM and 6:00 PM");
         }
 
+        // Only allow appointments on the hour or half hour, to the second: the availability masks
+        // and slot holds are keyed by slot index, which other times do not have
+        if (SlotOccupancyIndex.slotIndex(appointmentTime) < 0) {
+            throw new IllegalArgumentException("Appointments can only be booked on the hour or half-hour");
+        }
+
         // Weekend validation
         if (appointmentTime.getDayOfWeek().getValue() > 5) {
             throw new IllegalArgumentException("Appointments are not available on weekends");
         }
 
         // Prevent booking too far in advance
-        if (appointmentTime.isAfter(LocalDateTime.now().plusDays(30))) {
+        if (appointmentTime.isAfter(LocalDateTime.now().plusDays(BOOKING_HORIZON_DAYS))) {
             throw new IllegalArgumentException("Appointments can only be booked up to 30 days in advance");
         }
 
@@ -7,17 +7,15 @@ import com.spring.appointment.enums.UserRole;
 import com.spring.appointment.enums.UserStatus;
 import com.spring.appointment.model.Provider;
 import com.spring.appointment.model.User;
-import com.spring.appointment.model.Wallet;
 import com.spring.appointment.repository.ProviderRepository;
 import com.spring.appointment.repository.UserRepository;
-import com.spring.appointment.repository.WalletRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Slf4j
 @Service
@@ -26,11 +24,13 @@ import org.springframework.transaction.annotation.Transactional;
 public class AuthenticationService {
     private final UserRepository repository;
     private final ProviderRepository providerRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHasher passwordHasher;
     private final JwtService jwtService;
-    private final WalletRepository walletRepository;
-    private final AuthenticationManager authenticationManager;
+    private final WalletLedger walletLedger;
+    private final TransactionTemplate transactionTemplate;
 
+    // Hashes before the transaction starts so no connection is held while BCrypt runs
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public AuthenticationResponse register(UserRegisterRequest request) {
         log.info("Registering new customer with email: {}", request.email());
 
@@ -54,26 +54,12 @@ public class AuthenticationService {
         var user = User.builder()
                 .name(request.name())
                 .email(request.email())
-                .password(passwordEncoder.encode(request.password()))
+                .password(passwordHasher.encode(request.password()))
                 .role(role)
                 .status(UserStatus.ACTIVE)
                 .build();
 
-        repository.save(user);
-
-        // Create wallet for every user
-        Wallet wallet = new Wallet(user);
-        walletRepository.save(wallet);
-
-        Long providerId = null;
-        if (UserRole.PROVIDER.equals(user.getRole())) {
-            Provider provider = new Provider();
-            provider.setUser(user);
-            provider.setServiceType(request.serviceType());
-            provider.setBio(request.bio());
-            Provider savedProvider = providerRepository.save(provider);
-            providerId = savedProvider.getProviderId();
-        }
+        Long providerId = transactionTemplate.execute(status -> createAccount(user, request));
 
         var jwtToken = jwtService.generateToken(user);
         log.info("User registered successfully with ID: {}", user.getUserId());
@@ -87,27 +73,47 @@ public class AuthenticationService {
         );
     }
 
-    public AuthenticationResponse authenticate(AuthenticateRequest request) {
+    private Long createAccount(User user, UserRegisterRequest request) {
+        repository.save(user);
 
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.email(),
-                        request.password())
-        );
+        // Create wallet for every user
+        walletLedger.openWallet(user);
 
+        Long providerId = null;
+        if (UserRole.PROVIDER.equals(user.getRole())) {
+            Provider provider = new Provider();
+            provider.setUser(user);
+            provider.setServiceType(request.serviceType());
+            provider.setBio(request.bio());
+            Provider savedProvider = providerRepository.save(provider);
+            providerId = savedProvider.getProviderId();
+        }
+        return providerId;
+    }
 
-        User user = repository.findByEmail(request.email())
-                .orElseThrow(() -> new RuntimeException("Invalid email or password"));
+    // One user load and one BCrypt check. Runs outside a transaction: the hash is computed
+    // on PasswordHasher's pool and no connection should wait for it.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public AuthenticationResponse authenticate(AuthenticateRequest request) {
 
+        User user = repository.findByEmail(request.email()).orElse(null);
 
-        if (!passwordEncoder.matches(request.password(), user.getPassword())) {
-            throw new RuntimeException("Invalid email or password");
+        // unknown emails are checked against a dummy hash so they take as long as a wrong password
+        boolean matches = passwordHasher.matches(request.password(), user != null ? user.getPassword() : null);
+        if (user == null || !matches) {
+            throw new BadCredentialsException("Invalid email or password");
         }
 
         if (UserStatus.BLOCKED.equals(user.getStatus())) {
             throw new RuntimeException("Account is blocked. Contact administrator");
         }
 
+        // the cost factor was changed since this hash was made: store one with the current cost
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            repository.updatePassword(user.getUserId(), passwordHasher.encode(request.password()));
+            log.info("Rehashed password of user {} with the configured cost", user.getUserId());
+        }
+
         var jwtToken = jwtService.generateToken(user);
 
         return new AuthenticationResponse(
@@ -0,0 +1,75 @@
+package com.spring.appointment.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Serializes bookings for the same (provider, slot) inside this JVM so concurrent
+// customers queue on a lock instead of racing to the unique constraint. Locks are
+// striped: unrelated slots may share a stripe, which only costs a little extra waiting.
+@Slf4j
+@Component
+public class BookingLockManager {
+    private final ReentrantLock[] stripes;
+    private final long maxWaitMillis;
+
+    private final Counter acquired;
+    private final Counter contended;
+    private final Counter rejected;
+
+    public BookingLockManager(@Value("${booking.lock.stripes:1024}") int stripeCount,
+                              @Value("${booking.lock.max-wait-ms:250}") long maxWaitMillis,
+                              MeterRegistry meterRegistry) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.maxWaitMillis = maxWaitMillis;
+        this.acquired = meterRegistry.counter("booking.lock.acquired");
+        this.contended = meterRegistry.counter("booking.lock.contended");
+        this.rejected = meterRegistry.counter("booking.lock.rejected");
+    }
+
+    public <T> T withSlotLock(long providerId, LocalDateTime slot, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(providerId, slot);
+        if (!lock.tryLock()) {
+            contended.increment();
+            if (!awaitLock(lock)) {
+                rejected.increment();
+                log.debug("Rejected booking for provider {} at {} after waiting {} ms", providerId, slot, maxWaitMillis);
+                throw new IllegalArgumentException("This time slot is being booked by someone else. Please try again.");
+            }
+        }
+        acquired.increment();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean awaitLock(ReentrantLock lock) {
+        try {
+            return lock.tryLock(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private ReentrantLock stripeFor(long providerId, LocalDateTime slot) {
+        long h = providerId * 0x9E3779B97F4A7C15L + slot.toLocalDate().toEpochDay() * 31 + slot.toLocalTime().toSecondOfDay();
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return stripes[(int) h & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,86 @@
+package com.spring.appointment.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Map holding at most about maxEntries values. It is split into segments, each an access-ordered
+// LinkedHashMap under its own lock, so a put into a full segment drops that segment's least
+// recently used entry in O(1) instead of scanning for expired ones. Expiry is up to the caller:
+// an expired value found by get is removed, and the rest age out through LRU order.
+final class BoundedLruCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    BoundedLruCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        int count = Integer.highestOneBit(Math.min(MAX_SEGMENTS, maxEntries));
+        int perSegment = (maxEntries + count - 1) / count;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+    }
+
+    V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    void remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    // Only if it still maps to this value, so a fresher entry put meanwhile is kept
+    void remove(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key, value);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return segments[h & (segments.length - 1)];
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.enums.NotificationStatus;
+import com.spring.appointment.model.Notification;
+import com.spring.appointment.records.MailRecipient;
+import com.spring.appointment.repository.NotificationRepository;
+import com.spring.appointment.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Mails PENDING notifications off the request path. Each poll claims a batch in a short
+// transaction that stamps the rows with a lease, folds every recipient's notifications into one
+// message and splits the messages over at most `concurrency` senders; each sender pushes its
+// share through a single SMTP connection with no transaction or row lock held. Statuses are then
+// updated in a second transaction with one UPDATE per outcome. Connection-level failures release
+// the claim and back off exponentially; rejected recipients are marked FAILED.
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "notification.email.enabled", havingValue = "true")
+public class EmailDeliveryService {
+    private static final String SUBJECT = "Your appointment updates";
+    private static final long BASE_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+    private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int concurrency;
+    private final long claimLeaseSeconds;
+    private final String from;
+
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter deferred;
+
+    private int consecutiveFailures;
+    private long nextAttemptMillis;
+
+    public EmailDeliveryService(NotificationRepository notificationRepository,
+                                UserRepository userRepository,
+                                JavaMailSender mailSender,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${notification.email.batch-size:500}") int batchSize,
+                                @Value("${notification.email.concurrency:4}") int concurrency,
+                                @Value("${notification.email.claim-lease-seconds:300}") long claimLeaseSeconds,
+                                @Value("${notification.email.from:no-reply@appointment.local}") String from) {
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.concurrency = Math.max(1, concurrency);
+        this.claimLeaseSeconds = claimLeaseSeconds;
+        this.from = from;
+        this.sent = meterRegistry.counter("notification.email.sent");
+        this.failed = meterRegistry.counter("notification.email.failed");
+        this.deferred = meterRegistry.counter("notification.email.deferred");
+    }
+
+    // Runs on the scheduler thread, never on a request thread
+    @Scheduled(fixedDelayString = "${notification.email.poll-interval-ms:2000}")
+    public void deliverPending() {
+        if (System.currentTimeMillis() < nextAttemptMillis) {
+            return;
+        }
+        if (deliverBatch()) {
+            consecutiveFailures = 0;
+            nextAttemptMillis = 0;
+        } else {
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(consecutiveFailures++, 20));
+            nextAttemptMillis = System.currentTimeMillis() + backoff;
+            log.warn("Email delivery deferred, next attempt in {} ms", backoff);
+        }
+    }
+
+    // Returns false when the SMTP server could not take the batch
+    private boolean deliverBatch() {
+        Claim claim = transactionTemplate.execute(status -> claimBatch());
+        if (claim == null || claim.byRecipient().isEmpty()) {
+            return true;
+        }
+        Map<Long, List<Notification>> byRecipient = claim.byRecipient();
+        Map<Long, MailRecipient> recipients = claim.recipients();
+
+        List<List<Digest>> shares = new ArrayList<>();
+        for (int i = 0; i < Math.min(concurrency, byRecipient.size()); i++) {
+            shares.add(new ArrayList<>());
+        }
+        List<Long> failedIds = new ArrayList<>();
+        int next = 0;
+        for (Map.Entry<Long, List<Notification>> entry : byRecipient.entrySet()) {
+            MailRecipient recipient = recipients.get(entry.getKey());
+            List<Long> ids = entry.getValue().stream().map(Notification::getNotificationId).toList();
+            try {
+                shares.get(next++ % shares.size()).add(new Digest(compose(recipient, entry.getValue()), ids));
+            } catch (MessagingException | RuntimeException e) {
+                log.warn("Cannot compose email for user {}: {}", entry.getKey(), e.getMessage());
+                failedIds.addAll(ids);
+            }
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        boolean healthy = true;
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Outcome>> outcomes = new ArrayList<>(shares.size());
+            for (List<Digest> share : shares) {
+                outcomes.add(senders.submit(() -> send(share)));
+            }
+            for (Future<Outcome> future : outcomes) {
+                Outcome outcome = future.get();
+                sentIds.addAll(outcome.sentIds());
+                failedIds.addAll(outcome.failedIds());
+                healthy &= outcome.deferredIds().isEmpty();
+                deferred.increment(outcome.deferredIds().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            healthy = false;
+        } catch (ExecutionException e) {
+            log.warn("Email sender failed", e.getCause());
+            healthy = false;
+        }
+
+        // whatever was neither sent nor rejected, including shares lost to a failed sender
+        Set<Long> settled = new HashSet<>(sentIds);
+        settled.addAll(failedIds);
+        List<Long> deferredIds = new ArrayList<>();
+        for (List<Notification> notifications : byRecipient.values()) {
+            for (Notification notification : notifications) {
+                if (!settled.contains(notification.getNotificationId())) {
+                    deferredIds.add(notification.getNotificationId());
+                }
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> recordOutcomes(sentIds, failedIds, deferredIds));
+        return healthy;
+    }
+
+    // Locks the batch only for as long as it takes to stamp the lease on it
+    private Claim claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Notification> pending = notificationRepository.claimPending(now, PageRequest.of(0, batchSize));
+        if (pending.isEmpty()) {
+            return null;
+        }
+        Map<Long, List<Notification>> byRecipient = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(pending.size());
+        for (Notification notification : pending) {
+            byRecipient.computeIfAbsent(notification.getUser().getUserId(), id -> new ArrayList<>()).add(notification);
+            ids.add(notification.getNotificationId());
+        }
+        notificationRepository.claim(ids, now.plusSeconds(claimLeaseSeconds));
+        Map<Long, MailRecipient> recipients = new LinkedHashMap<>();
+        for (MailRecipient recipient : userRepository.findMailRecipientsByIds(byRecipient.keySet())) {
+            recipients.put(recipient.userId(), recipient);
+        }
+        return new Claim(byRecipient, recipients);
+    }
+
+    private void recordOutcomes(List<Long> sentIds, List<Long> failedIds, List<Long> deferredIds) {
+        if (!sentIds.isEmpty()) {
+            notificationRepository.updateStatus(sentIds, NotificationStatus.SENT);
+            sent.increment(sentIds.size());
+        }
+        if (!failedIds.isEmpty()) {
+            notificationRepository.updateStatus(failedIds, NotificationStatus.FAILED);
+            failed.increment(failedIds.size());
+        }
+        // back to PENDING for the next poll rather than waiting out the lease
+        if (!deferredIds.isEmpty()) {
+            notificationRepository.releaseClaims(deferredIds);
+        }
+    }
+
+    // Sends a share over one connection and sorts its notifications by outcome
+    private Outcome send(List<Digest> share) {
+        Outcome outcome = new Outcome(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        if (share.isEmpty()) {
+            return outcome;
+        }
+        try {
+            mailSender.send(share.stream().map(Digest::message).toArray(MimeMessage[]::new));
+            share.forEach(digest -> outcome.sentIds().addAll(digest.notificationIds()));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            for (Digest digest : share) {
+                Exception cause = failedMessages.get(digest.message());
+                if (cause == null) {
+                    outcome.sentIds().addAll(digest.notificationIds());
+                } else if (cause instanceof SendFailedException) {
+                    outcome.failedIds().addAll(digest.notificationIds());
+                } else {
+                    outcome.deferredIds().addAll(digest.notificationIds());
+                }
+            }
+        } catch (MailException e) {
+            log.warn("SMTP server unavailable: {}", e.getMessage());
+            share.forEach(digest -> outcome.deferredIds().addAll(digest.notificationIds()));
+        }
+        return outcome;
+    }
+
+    private MimeMessage compose(MailRecipient recipient, List<Notification> notifications) throws MessagingException {
+        StringBuilder body = new StringBuilder("Hello ").append(recipient.name()).append(",\n\n");
+        for (Notification notification : notifications) {
+            body.append("- ").append(notification.render()).append('\n');
+        }
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(from);
+        helper.setTo(recipient.email());
+        helper.setSubject(SUBJECT);
+        helper.setText(body.toString());
+        return message;
+    }
+
+    private record Claim(Map<Long, List<Notification>> byRecipient, Map<Long, MailRecipient> recipients) {}
+
+    private record Digest(MimeMessage message, List<Long> notificationIds) {}
+
+    private record Outcome(List<Long> sentIds, List<Long> failedIds, List<Long> deferredIds) {}
+}
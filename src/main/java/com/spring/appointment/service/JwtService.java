@@ -2,17 +2,24 @@ package com.spring.appointment.service;
 
 import com.spring.appointment.model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 
 import javax.crypto.SecretKey;
-import java.security.Key;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -21,40 +28,71 @@ import java.util.function.Function;
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret.key}")
-    private String secretKey;
+    private final long expirationTime;
+    // decoded once; the parser is immutable and thread-safe
+    private final SecretKey signInKey;
+    private final JwtParser parser;
+
+    // Verified claims keyed by the SHA-256 of the token, kept until the token expires or, once
+    // max-entries tokens are cached, until it is the least recently used one.
+    // The digest rather than the token's hashCode, so a forged token can never hit a cached entry.
+    private final BoundedLruCache<ByteBuffer, VerifiedToken> verified;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+
+    public JwtService(@Value("${jwt.secret.key}") String secretKey,
+                      @Value("${jwt.expiration.time}") long expirationTime,
+                      @Value("${jwt.cache.max-entries:10000}") int cacheMaxEntries,
+                      MeterRegistry meterRegistry) {
+        this.expirationTime = expirationTime;
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parser().verifyWith(signInKey).build();
+        this.verified = new BoundedLruCache<>(cacheMaxEntries);
+        this.cacheHits = meterRegistry.counter("jwt.cache.hits");
+        this.cacheMisses = meterRegistry.counter("jwt.cache.misses");
+    }
 
-    @Value("${jwt.expiration.time}")
-    private long expirationTime;
+    // Claims of a token whose signature checks out and that has not expired, or null.
+    // Only the first request with a token pays for the signature check.
+    public Claims verify(String token) {
+        long now = System.currentTimeMillis();
+        ByteBuffer key = ByteBuffer.wrap(sha256(token));
+        VerifiedToken cached = verified.get(key);
+        if (cached != null) {
+            if (now < cached.expiresAt()) {
+                cacheHits.increment();
+                return cached.claims();
+            }
+            verified.remove(key, cached);
+            return null;
+        }
 
-    private Key getSignInKey(){
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        cacheMisses.increment();
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        if (claims.getExpiration() == null) {
+            return claims;
+        }
+        verified.put(key, new VerifiedToken(claims, claims.getExpiration().getTime()));
+        return claims;
     }
 
-
     public String extractUserName(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public Long extractUserId(String token) {
-        Claims claims = extractAllClaims(token);
-        return claims.get("userId", Long.class);
-    }
-
-
-    private Claims extractAllClaims(String token){
-        return Jwts.parser()
-                .verifyWith((SecretKey) getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return extractClaim(token, claims -> claims.get("userId", Long.class));
     }
 
-    //extracting single claims we pass
+    //extracting single claims we pass; null when the token is not valid
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+        final Claims claims = verify(token);
+        return claims == null ? null : claimsResolver.apply(claims);
     }
 
     //generating through username
@@ -80,23 +118,23 @@ public class JwtService {
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis()+ expirationTime))
-                .signWith(getSignInKey())
+                .signWith(signInKey)
                 .compact();
     }
 
     //validating a token
     public boolean isTokenValid(String token, UserDetails userDetails){
-        final String username = extractUserName(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        final Claims claims = verify(token);
+        return claims != null && userDetails.getUsername().equals(claims.getSubject());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
-
+    private record VerifiedToken(Claims claims, long expiresAt) {}
 }
@@ -0,0 +1,201 @@
+package com.spring.appointment.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// In-process publish/subscribe for server-sent events. Topics are a user's own stream and a
+// provider-day's availability. Every subscriber gets a bounded queue drained by its own
+// virtual thread, so a slow client never holds up a publisher: when its queue overflows the
+// backlog is dropped and the client is told to resync. Idle streams get a heartbeat comment.
+// Events are only published once the publishing transaction has committed.
+@Slf4j
+@Component
+public class LiveEventBus {
+    private static final Event RESYNC = new Event("resync", Map.of());
+
+    private final Map<Long, Set<Subscription>> byUser = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscription>> byProviderDay = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final int queueCapacity;
+    private final long heartbeatMillis;
+    private final long streamTimeoutMillis;
+    private final Counter published;
+    private final Counter dropped;
+
+    public LiveEventBus(MeterRegistry meterRegistry,
+                        @Value("${live.queue-capacity:64}") int queueCapacity,
+                        @Value("${live.heartbeat-ms:15000}") long heartbeatMillis,
+                        @Value("${live.stream-timeout-ms:1800000}") long streamTimeoutMillis) {
+        this.queueCapacity = queueCapacity;
+        this.heartbeatMillis = heartbeatMillis;
+        this.streamTimeoutMillis = streamTimeoutMillis;
+        this.published = meterRegistry.counter("live.events.published");
+        this.dropped = meterRegistry.counter("live.events.dropped");
+        meterRegistry.gauge("live.subscribers", subscribers);
+    }
+
+    // The initial payload is read once the subscriber is registered, so nothing committed in
+    // between is missed: such an event is queued ahead of the snapshot that already includes it
+    public SseEmitter subscribeUser(long userId, String initialName, Supplier<?> initialData) {
+        return subscribe(byUser, userId, "user-" + userId, initialName, initialData);
+    }
+
+    public SseEmitter subscribeProviderDay(long providerId, LocalDate date, String initialName, Supplier<?> initialData) {
+        return subscribe(byProviderDay, SlotOccupancyIndex.key(providerId, date),
+                "provider-" + providerId + "-" + date, initialName, initialData);
+    }
+
+    // The payload is only built if someone is listening when the transaction commits
+    public void publishToUser(long userId, String name, Supplier<?> data) {
+        afterCommit(() -> publish(byUser.get(userId), name, data));
+    }
+
+    public void publishToProviderDay(long providerId, LocalDate date, String name, Supplier<?> data) {
+        long key = SlotOccupancyIndex.key(providerId, date);
+        afterCommit(() -> publish(byProviderDay.get(key), name, data));
+    }
+
+    @PreDestroy
+    void closeAll() {
+        byUser.values().forEach(topic -> topic.forEach(subscription -> subscription.close(true)));
+        byProviderDay.values().forEach(topic -> topic.forEach(subscription -> subscription.close(true)));
+    }
+
+    private SseEmitter subscribe(Map<Long, Set<Subscription>> topics, long key, String name,
+                                 String initialName, Supplier<?> initialData) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        Subscription subscription = new Subscription(emitter, topics, key);
+        // compute, not computeIfAbsent + add, so a concurrent close cannot drop the topic in between
+        topics.compute(key, (k, topic) -> {
+            Set<Subscription> live = topic != null ? topic : ConcurrentHashMap.newKeySet();
+            live.add(subscription);
+            return live;
+        });
+        subscribers.incrementAndGet();
+        // the container already finished these requests, so the emitter must not be completed again
+        emitter.onCompletion(() -> subscription.close(false));
+        emitter.onTimeout(() -> subscription.close(false));
+        emitter.onError(error -> subscription.close(false));
+        try {
+            subscription.offer(new Event(initialName, initialData.get()));
+        } catch (RuntimeException e) {
+            subscription.close(false);
+            throw e;
+        }
+        subscription.worker = Thread.ofVirtual().name("sse-" + name).start(subscription::run);
+        return emitter;
+    }
+
+    private void publish(Set<Subscription> topic, String name, Supplier<?> data) {
+        if (topic == null || topic.isEmpty()) {
+            return;
+        }
+        Event event = new Event(name, data.get());
+        for (Subscription subscription : topic) {
+            subscription.offer(event);
+        }
+        published.increment();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record Event(String name, Object data) {}
+
+    private final class Subscription {
+        private final SseEmitter emitter;
+        private final Map<Long, Set<Subscription>> topics;
+        private final long key;
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private volatile boolean closed;
+        private volatile Thread worker;
+
+        Subscription(SseEmitter emitter, Map<Long, Set<Subscription>> topics, long key) {
+            this.emitter = emitter;
+            this.topics = topics;
+            this.key = key;
+        }
+
+        // Never blocks the publisher
+        synchronized void offer(Event event) {
+            if (closed || queue.offer(event)) {
+                return;
+            }
+            dropped.increment(queue.size());
+            queue.clear();
+            queue.offer(RESYNC);
+        }
+
+        void run() {
+            try {
+                while (!closed) {
+                    Event event = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (closed) {
+                        return;
+                    }
+                    if (event == null) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        emitter.send(SseEmitter.event().name(event.name()).data(event.data(), MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                // client went away; the emitter callbacks may not fire for a broken connection
+                log.debug("SSE subscriber {} disconnected: {}", key, e.getMessage());
+                close(false);
+            }
+        }
+
+        void close(boolean completeEmitter) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            topics.computeIfPresent(key, (k, topic) -> {
+                topic.remove(this);
+                return topic.isEmpty() ? null : topic;
+            });
+            subscribers.decrementAndGet();
+            Thread thread = worker;
+            if (thread != null && thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+            if (completeEmitter) {
+                emitter.complete();
+            }
+        }
+    }
+}
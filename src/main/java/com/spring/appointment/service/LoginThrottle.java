@@ -0,0 +1,72 @@
+package com.spring.appointment.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Token buckets per client address and per email for the auth endpoints, checked before any
+// password is hashed. The address bucket stops one client spraying many accounts, the email
+// bucket stops many clients guessing one account. Keys are hashed with a per-process seed so
+// nobody can work out emails that would share, and drain, another account's bucket.
+@Component
+public class LoginThrottle {
+    private final boolean enabled;
+    private final long seed = new SecureRandom().nextLong();
+    private final TokenBucketTable byAddress;
+    private final TokenBucketTable byEmail;
+    private final Counter rejectedByAddress;
+    private final Counter rejectedByEmail;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${security.login-throttle.enabled:true}") boolean enabled,
+                         @Value("${security.login-throttle.slots:16384}") int slots,
+                         @Value("${security.login-throttle.address.capacity:20}") int addressCapacity,
+                         @Value("${security.login-throttle.address.refill-seconds:3}") long addressRefillSeconds,
+                         @Value("${security.login-throttle.email.capacity:5}") int emailCapacity,
+                         @Value("${security.login-throttle.email.refill-seconds:60}") long emailRefillSeconds) {
+        this.enabled = enabled;
+        this.byAddress = new TokenBucketTable(slots, addressCapacity, addressRefillSeconds, TimeUnit.SECONDS);
+        this.byEmail = new TokenBucketTable(slots, emailCapacity, emailRefillSeconds, TimeUnit.SECONDS);
+        this.rejectedByAddress = meterRegistry.counter("auth.throttle.rejected", "key", "address");
+        this.rejectedByEmail = meterRegistry.counter("auth.throttle.rejected", "key", "email");
+    }
+
+    // 0 if the attempt may go ahead, else the seconds to wait before retrying
+    public long acquire(String clientAddress, String email) {
+        if (!enabled) {
+            return 0L;
+        }
+        long now = System.nanoTime();
+        long wait = byAddress.tryAcquire(hash(clientAddress), now);
+        if (wait > 0) {
+            rejectedByAddress.increment();
+            return toSeconds(wait);
+        }
+        if (email != null) {
+            wait = byEmail.tryAcquire(hash(email.toLowerCase(Locale.ROOT)), now);
+            if (wait > 0) {
+                rejectedByEmail.increment();
+                return toSeconds(wait);
+            }
+        }
+        return 0L;
+    }
+
+    private long hash(String value) {
+        long h = seed;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+            h ^= h >>> 29;
+        }
+        return h;
+    }
+
+    private static long toSeconds(long nanos) {
+        return Math.max(1L, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+}
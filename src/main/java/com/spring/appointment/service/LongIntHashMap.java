@@ -0,0 +1,132 @@
+package com.spring.appointment.service;
+
+import java.util.function.LongPredicate;
+
+// Open-addressing long -> int map with linear probing. Keys and values live in two
+// primitive arrays so lookups never box. Key 0 marks an empty cell and cannot be stored.
+// Not thread-safe: callers guard it with their own lock.
+final class LongIntHashMap {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+    }
+
+    int get(long key, int defaultValue) {
+        long[] k = keys;
+        int mask = k.length - 1;
+        int slot = mix(key) & mask;
+        // bounded so an optimistic reader racing a writer can never spin forever
+        for (int probes = 0; probes <= mask; probes++) {
+            long current = k[slot];
+            if (current == key) {
+                int[] v = values;
+                return slot < v.length ? v[slot] : defaultValue;
+            }
+            if (current == 0L) {
+                return defaultValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    void put(long key, int value) {
+        if (key == 0L) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1, null);
+        }
+    }
+
+    void remove(long key) {
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == 0L) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // backward-shift deletion keeps probe chains intact without tombstones
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != 0L) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = 0L;
+        values[gap] = 0;
+        size--;
+    }
+
+    // Drops every entry whose key fails the predicate, shrinking the table if it got sparse
+    void retainIf(LongPredicate keep) {
+        int capacity = keys.length;
+        while (capacity > 16 && size < capacity * LOAD_FACTOR / 4) {
+            capacity >>= 1;
+        }
+        rehash(capacity, keep);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash(int capacity, LongPredicate keep) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        long[] newKeys = new long[capacity];
+        int[] newValues = new int[capacity];
+        int mask = capacity - 1;
+        int kept = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == 0L || (keep != null && !keep.test(key))) {
+                continue;
+            }
+            int slot = mix(key) & mask;
+            while (newKeys[slot] != 0L) {
+                slot = (slot + 1) & mask;
+            }
+            newKeys[slot] = key;
+            newValues[slot] = oldValues[i];
+            kept++;
+        }
+        // publish values before keys so an optimistic reader never pairs new keys with old values
+        values = newValues;
+        keys = newKeys;
+        size = kept;
+        if (size > capacity * LOAD_FACTOR) {
+            rehash(capacity << 1, null);
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,209 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.enums.NotificationStatus;
+import com.spring.appointment.model.Notification;
+import com.spring.appointment.model.NotificationEvent;
+import com.spring.appointment.records.AppointmentParties;
+import com.spring.appointment.repository.AppointmentRepository;
+import com.spring.appointment.repository.NotificationEventRepository;
+import com.spring.appointment.repository.NotificationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Drains the notification outbox on a virtual thread: claims a batch of events, loads the
+// names it needs with one query, builds the notifications and inserts them in one batch.
+// Events that fail are retried with exponential backoff; after max-attempts they are moved to
+// the notification_outbox_dead table.
+@Slf4j
+@Component
+public class NotificationDispatcher {
+    private static final long BASE_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60 * 1000;
+
+    private final NotificationOutbox notificationOutbox;
+    private final NotificationEventRepository notificationEventRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final NotificationRepository notificationRepository;
+    private final NotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final int maxAttempts;
+    // notifications wait for EmailDeliveryService when email delivery is on
+    private final NotificationStatus initialStatus;
+
+    private final Counter dispatched;
+    private final Counter retried;
+    private final Counter abandoned;
+    private final Timer lag;
+    private final Timer batches;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public NotificationDispatcher(NotificationOutbox notificationOutbox,
+                                  NotificationEventRepository notificationEventRepository,
+                                  AppointmentRepository appointmentRepository,
+                                  NotificationRepository notificationRepository,
+                                  NotificationService notificationService,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${notification.dispatcher.enabled:true}") boolean enabled,
+                                  @Value("${notification.dispatcher.batch-size:200}") int batchSize,
+                                  @Value("${notification.dispatcher.poll-interval-ms:1000}") long pollIntervalMillis,
+                                  @Value("${notification.dispatcher.max-attempts:10}") int maxAttempts,
+                                  @Value("${notification.email.enabled:false}") boolean emailEnabled) {
+        this.notificationOutbox = notificationOutbox;
+        this.notificationEventRepository = notificationEventRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.notificationRepository = notificationRepository;
+        this.notificationService = notificationService;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.maxAttempts = maxAttempts;
+        this.initialStatus = emailEnabled ? NotificationStatus.PENDING : NotificationStatus.SENT;
+        this.dispatched = meterRegistry.counter("notification.outbox.dispatched");
+        this.retried = meterRegistry.counter("notification.outbox.retried");
+        this.abandoned = meterRegistry.counter("notification.outbox.abandoned");
+        this.lag = meterRegistry.timer("notification.outbox.lag");
+        this.batches = meterRegistry.timer("notification.outbox.batch");
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = Thread.ofVirtual().name("notification-dispatcher").start(this::run);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(Duration.ofSeconds(5));
+        }
+    }
+
+    // Dispatches one batch and returns the number of events it claimed
+    public int dispatchBatch() {
+        Integer claimed = batches.record(() -> transactionTemplate.execute(status -> drain(LocalDateTime.now())));
+        return claimed == null ? 0 : claimed;
+    }
+
+    private void run() {
+        int failures = 0;
+        while (running) {
+            try {
+                int claimed = dispatchBatch();
+                failures = 0;
+                if (claimed < batchSize) {
+                    notificationOutbox.awaitEvents(pollIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                long backoff = backoffMillis(++failures);
+                log.warn("Notification dispatch failed, retrying in {} ms", backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private int drain(LocalDateTime now) {
+        List<NotificationEvent> events = notificationEventRepository.claimBatch(now, PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, AppointmentParties> parties = new HashMap<>();
+        List<Long> appointmentIds = events.stream().map(NotificationEvent::getAppointmentId).distinct().toList();
+        for (AppointmentParties appointment : appointmentRepository.findPartiesByIds(appointmentIds)) {
+            parties.put(appointment.appointmentId(), appointment);
+        }
+
+        List<Notification> notifications = new ArrayList<>(events.size() * 2);
+        List<Long> done = new ArrayList<>(events.size());
+        Map<Long, String> exhausted = new HashMap<>();
+        for (NotificationEvent event : events) {
+            AppointmentParties appointment = parties.get(event.getAppointmentId());
+            String failure = null;
+            if (appointment == null) {
+                failure = "appointment not found";
+            } else {
+                try {
+                    notifications.addAll(notificationService.notificationsFor(event, appointment));
+                } catch (RuntimeException e) {
+                    failure = String.valueOf(e.getMessage());
+                }
+            }
+            if (failure != null) {
+                if (retryLater(event, now, failure)) {
+                    exhausted.put(event.getEventId(), failure);
+                }
+                continue;
+            }
+            done.add(event.getEventId());
+            lag.record(Duration.between(event.getCreatedAt(), now));
+        }
+
+        notifications.forEach(notification -> notification.setStatus(initialStatus));
+        notificationRepository.saveAll(notifications);
+        notificationService.notificationsSaved(notifications);
+        if (!exhausted.isEmpty()) {
+            // the native copies read the table, so the new attempt counts have to be in it first
+            notificationEventRepository.flush();
+            exhausted.forEach((eventId, reason) -> notificationEventRepository.copyToDeadLetter(
+                    eventId, now, reason.length() > 1000 ? reason.substring(0, 1000) : reason));
+            done.addAll(exhausted.keySet());
+        }
+        notificationEventRepository.deleteAllByIdInBatch(done);
+        dispatched.increment(done.size() - exhausted.size());
+        return events.size();
+    }
+
+    // Schedules the next attempt; true if that was the last one and the event is to be dead-lettered
+    private boolean retryLater(NotificationEvent event, LocalDateTime now, String reason) {
+        event.setAttempts(event.getAttempts() + 1);
+        event.setAvailableAt(now.plus(Duration.ofMillis(backoffMillis(event.getAttempts()))));
+        if (event.getAttempts() >= maxAttempts) {
+            abandoned.increment();
+            log.error("Giving up on notification event {} after {} attempts, moving it to the dead-letter table: {}",
+                    event.getEventId(), event.getAttempts(), reason);
+            return true;
+        }
+        retried.increment();
+        log.debug("Retrying notification event {} later: {}", event.getEventId(), reason);
+        return false;
+    }
+
+    private static long backoffMillis(int attempt) {
+        return Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 20));
+    }
+}
@@ -0,0 +1,48 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.enums.NotificationEventType;
+import com.spring.appointment.model.NotificationEvent;
+import com.spring.appointment.repository.NotificationEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Write side of the notification outbox: one compact row per event, in the caller's transaction.
+// A commit wakes the dispatcher so notifications do not wait for its next poll.
+@Component
+@RequiredArgsConstructor
+public class NotificationOutbox {
+    private final NotificationEventRepository notificationEventRepository;
+    private final Semaphore signal = new Semaphore(0);
+
+    public void append(NotificationEventType type, long appointmentId, Long actorId) {
+        notificationEventRepository.save(new NotificationEvent(type, appointmentId, actorId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    void wakeUp() {
+        if (signal.availablePermits() == 0) {
+            signal.release();
+        }
+    }
+
+    // Returns once new events were committed or the timeout passed
+    boolean awaitEvents(long timeoutMillis) throws InterruptedException {
+        boolean signalled = signal.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        signal.drainPermits();
+        return signalled;
+    }
+}
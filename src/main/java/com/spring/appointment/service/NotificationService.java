@@ -1,14 +1,23 @@
 package com.spring.appointment.service;
 
+import com.spring.appointment.enums.NotificationEventType;
+import com.spring.appointment.enums.NotificationTemplate;
 import com.spring.appointment.model.Appointment;
 import com.spring.appointment.model.Notification;
-import com.spring.appointment.model.User;
+import com.spring.appointment.model.NotificationEvent;
+import com.spring.appointment.records.AppointmentParties;
+import com.spring.appointment.records.NotificationCursor;
+import com.spring.appointment.records.NotificationPageResponse;
+import com.spring.appointment.records.NotificationResponse;
+import com.spring.appointment.records.UnreadCountResponse;
 import com.spring.appointment.repository.NotificationRepository;
+import com.spring.appointment.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
@@ -16,81 +25,115 @@ import java.util.List;
 @Transactional
 public class NotificationService {
     private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final NotificationOutbox notificationOutbox;
+    private final NotificationUnreadCounter unreadCounter;
+    private final LiveEventBus liveEventBus;
 
-    public List<Notification> getUserNotifications(Long userId) {
-        return notificationRepository.findByUserUserIdOrderByCreatedAtDesc(userId);
-    }
+    public static final int MAX_PAGE_SIZE = 100;
 
-    // Notification helper methods
-     void createBookingNotifications(Appointment appointment) {
-        // Notification for customer
-        Notification customerNotification = new Notification();
-        customerNotification.setUser(appointment.getCustomer());
-        customerNotification.setMessage(String.format(
-                "Appointment booked with %s on %s. Status: PENDING",
-                appointment.getProvider().getUser().getName(),
-                appointment.getAppointmentTime().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a"))
-        ));
-        notificationRepository.save(customerNotification);
+    // One page, newest first, continuing after the cursor when one is given
+    @Transactional(readOnly = true)
+    public NotificationPageResponse getUserNotifications(Long userId, String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // one extra row tells whether another page follows
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<Notification> notifications;
+        if (cursor == null || cursor.isBlank()) {
+            notifications = notificationRepository.findLatest(userId, page);
+        } else {
+            NotificationCursor after = NotificationCursor.decode(cursor);
+            notifications = notificationRepository.findOlderThan(userId, after.createdAt(), after.notificationId(), page);
+        }
 
-        // Notification for provider
-        Notification providerNotification = new Notification();
-        providerNotification.setUser(appointment.getProvider().getUser());
-        providerNotification.setMessage(String.format(
-                "New appointment request from %s on %s",
-                appointment.getCustomer().getName(),
-                appointment.getAppointmentTime().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a"))
-        ));
-        notificationRepository.save(providerNotification);
+        String nextCursor = null;
+        if (notifications.size() > limit) {
+            notifications = notifications.subList(0, limit);
+            Notification last = notifications.get(limit - 1);
+            nextCursor = new NotificationCursor(last.getCreatedAt(), last.getNotificationId()).encode();
+        }
+        List<NotificationResponse> responses = notifications.stream()
+                .map(NotificationResponse::from)
+                .toList();
+        return new NotificationPageResponse(responses, nextCursor, unreadCounter.unreadCount(userId));
     }
 
-    void createConfirmationNotifications(Appointment appointment) {
-        // Notification for customer
-        Notification customerNotification = new Notification();
-        customerNotification.setUser(appointment.getCustomer());
-        customerNotification.setMessage(String.format(
-                "Your appointment with %s on %s has been CONFIRMED",
-                appointment.getProvider().getUser().getName(),
-                appointment.getAppointmentTime().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a"))
-        ));
-        notificationRepository.save(customerNotification);
+    @Transactional(readOnly = true)
+    public long getUnreadCount(Long userId) {
+        return unreadCounter.unreadCount(userId);
+    }
 
-        // Notification for provider
-        Notification providerNotification = new Notification();
-        providerNotification.setUser(appointment.getProvider().getUser());
-        providerNotification.setMessage(String.format(
-                "Appointment with %s on %s has been confirmed",
-                appointment.getCustomer().getName(),
-                appointment.getAppointmentTime().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a"))
-        ));
-        notificationRepository.save(providerNotification);
+    // A single UPDATE; without ids everything the user has not read yet is marked. Only the read
+    // time is set, so a notification read before it was mailed is still mailed.
+    public int markRead(Long userId, List<Long> notificationIds) {
+        LocalDateTime now = LocalDateTime.now();
+        int marked = notificationIds == null || notificationIds.isEmpty()
+                ? notificationRepository.markAllRead(userId, now)
+                : notificationRepository.markRead(userId, notificationIds, now);
+        unreadCounter.markedRead(userId, marked);
+        if (marked > 0) {
+            // other devices of the user update their badge
+            liveEventBus.publishToUser(userId, "unread-count", () -> new UnreadCountResponse(unreadCounter.unreadCount(userId)));
+        }
+        return marked;
     }
 
-    void createCancellationNotifications(Appointment appointment, User cancelledBy) {
-        String cancelledByName = cancelledBy.getName();
-        boolean cancelledByCustomer = cancelledBy.getUserId().equals(appointment.getCustomer().getUserId());
+    // Call in the transaction that inserted the notifications; counts them as unread and
+    // pushes them to the users' streams once committed
+    void notificationsSaved(List<Notification> notifications) {
+        unreadCounter.inserted(notifications);
+        for (Notification notification : notifications) {
+            liveEventBus.publishToUser(notification.getUser().getUserId(), "notification",
+                    () -> NotificationResponse.from(notification));
+        }
+    }
 
-        // Notification for the other party
-        User otherParty = cancelledByCustomer ? appointment.getProvider().getUser() : appointment.getCustomer();
-        Notification otherPartyNotification = new Notification();
-        otherPartyNotification.setUser(otherParty);
-        otherPartyNotification.setMessage(String.format(
-                "Appointment on %s has been CANCELLED by %s",
-                appointment.getAppointmentTime().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a")),
-                cancelledByName
-        ));
-        notificationRepository.save(otherPartyNotification);
+    // Notification helper methods
+    // The hot path only appends an outbox event; NotificationDispatcher writes the notifications later
+    void createBookingNotifications(Appointment appointment) {
+        notificationOutbox.append(NotificationEventType.APPOINTMENT_BOOKED, appointment.getAppointmentId(), null);
+    }
 
-        // Notification for the person who cancelled
-        Notification cancellerNotification = new Notification();
-        cancellerNotification.setUser(cancelledBy);
-        cancellerNotification.setMessage(String.format(
-                "You have CANCELLED your appointment on %s",
-                appointment.getAppointmentTime().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a"))
-        ));
-        notificationRepository.save(cancellerNotification);
+    void createConfirmationNotifications(Appointment appointment) {
+        notificationOutbox.append(NotificationEventType.APPOINTMENT_CONFIRMED, appointment.getAppointmentId(), null);
     }
 
+    void createCancellationNotifications(Appointment appointment, long cancelledById) {
+        notificationOutbox.append(NotificationEventType.APPOINTMENT_CANCELLED, appointment.getAppointmentId(), cancelledById);
+    }
 
+    // The two notifications an event produces, attached to user references. Only the
+    // template and its parameters are stored; the text is rendered when a notification is read.
+    List<Notification> notificationsFor(NotificationEvent event, AppointmentParties appointment) {
+        return switch (event.getType()) {
+            case APPOINTMENT_BOOKED -> List.of(
+                    notification(appointment.customerId(), NotificationTemplate.BOOKED_CUSTOMER, appointment.providerName(), appointment),
+                    notification(appointment.providerUserId(), NotificationTemplate.BOOKED_PROVIDER, appointment.customerName(), appointment));
+            case APPOINTMENT_CONFIRMED -> List.of(
+                    notification(appointment.customerId(), NotificationTemplate.CONFIRMED_CUSTOMER, appointment.providerName(), appointment),
+                    notification(appointment.providerUserId(), NotificationTemplate.CONFIRMED_PROVIDER, appointment.customerName(), appointment));
+            case APPOINTMENT_CANCELLED -> {
+                boolean cancelledByCustomer = appointment.customerId().equals(event.getActorId());
+                Long cancellerId = cancelledByCustomer ? appointment.customerId() : appointment.providerUserId();
+                String cancellerName = cancelledByCustomer ? appointment.customerName() : appointment.providerName();
+                Long otherPartyId = cancelledByCustomer ? appointment.providerUserId() : appointment.customerId();
+                yield List.of(
+                        notification(otherPartyId, NotificationTemplate.CANCELLED_OTHER_PARTY, cancellerName, appointment),
+                        notification(cancellerId, NotificationTemplate.CANCELLED_BY_SELF, null, appointment));
+            }
+        };
+    }
 
-}
\ No newline at end of file
+    private Notification notification(Long userId, NotificationTemplate template, String counterpartName,
+                                      AppointmentParties appointment) {
+        Notification notification = new Notification();
+        notification.setUser(userRepository.getReferenceById(userId));
+        notification.setTemplate(template);
+        notification.setAppointmentId(appointment.appointmentId());
+        notification.setCounterpartName(counterpartName);
+        notification.setAppointmentTime(appointment.appointmentTime());
+        return notification;
+    }
+}
@@ -0,0 +1,103 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.model.Notification;
+import com.spring.appointment.repository.NotificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Unread notifications per user, counted once from the database and then adjusted when
+// notifications are inserted or marked read on this instance. Counts expire after ttl so
+// inserts committed by another instance's dispatcher show up eventually.
+@Component
+public class NotificationUnreadCounter {
+    private static final int STRIPES = 64;
+    private static final int PRUNE_THRESHOLD = 1 << 16;
+
+    private final NotificationRepository notificationRepository;
+    private final PrimaryReads primaryReads;
+    private final long ttlNanos;
+    private final Map<Long, Count> counts = new ConcurrentHashMap<>();
+    // bumped on every change to a user in the stripe so a count that raced a commit is not cached
+    private final AtomicLongArray mutations = new AtomicLongArray(STRIPES);
+
+    public NotificationUnreadCounter(NotificationRepository notificationRepository,
+                                     PrimaryReads primaryReads,
+                                     @Value("${notification.unread-count.ttl-seconds:60}") long ttlSeconds) {
+        this.notificationRepository = notificationRepository;
+        this.primaryReads = primaryReads;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public long unreadCount(long userId) {
+        long now = System.nanoTime();
+        Count cached = counts.get(userId);
+        if (cached != null && now - cached.loadedAt < ttlNanos) {
+            return Math.max(0, cached.unread.get());
+        }
+
+        int stripe = stripe(userId);
+        long seenMutations = mutations.get(stripe);
+        long unread = primaryReads.read(() -> notificationRepository.countUnread(userId));
+        if (mutations.get(stripe) == seenMutations) {
+            if (counts.size() >= PRUNE_THRESHOLD) {
+                counts.values().removeIf(count -> now - count.loadedAt >= ttlNanos);
+            }
+            counts.put(userId, new Count(new AtomicLong(unread), now));
+        }
+        return unread;
+    }
+
+    // Call in the transaction that inserts the notifications
+    public void inserted(List<Notification> notifications) {
+        Map<Long, Integer> perUser = new HashMap<>();
+        for (Notification notification : notifications) {
+            perUser.merge(notification.getUser().getUserId(), 1, Integer::sum);
+        }
+        afterCommit(() -> perUser.forEach(this::adjust));
+    }
+
+    // Call in the transaction that marked them read
+    public void markedRead(long userId, int marked) {
+        if (marked > 0) {
+            afterCommit(() -> adjust(userId, -marked));
+        }
+    }
+
+    private void adjust(long userId, long delta) {
+        mutations.incrementAndGet(stripe(userId));
+        Count cached = counts.get(userId);
+        if (cached != null) {
+            cached.unread.addAndGet(delta);
+        }
+    }
+
+    private static int stripe(long userId) {
+        return (int) (userId ^ (userId >>> 32)) & (STRIPES - 1);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record Count(AtomicLong unread, long loadedAt) {}
+}
@@ -0,0 +1,101 @@
+package com.spring.appointment.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs BCrypt on a small fixed pool with a bounded queue, so a login storm can only take
+// `threads` cores and callers beyond the queue are turned away at once (RejectedExecutionException,
+// answered with 503) instead of piling up on request threads.
+@Slf4j
+@Component
+public class PasswordHasher {
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int strength;
+    // compared against when the email is unknown, so a miss costs as much as a wrong password
+    private final String unknownUserHash;
+
+    private final Counter rejected;
+    private final Timer hashing;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          MeterRegistry meterRegistry,
+                          @Value("${security.bcrypt.strength:10}") int strength,
+                          @Value("${security.hashing.threads:0}") int threads,
+                          @Value("${security.hashing.queue-capacity:100}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        this.strength = strength;
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.rejected = meterRegistry.counter("auth.hashing.rejected");
+        this.hashing = meterRegistry.timer("auth.hashing");
+        meterRegistry.gauge("auth.hashing.queue", executor, pool -> pool.getQueue().size());
+        meterRegistry.gauge("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount);
+        this.unknownUserHash = passwordEncoder.encode("unknown-user");
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword != null ? encodedPassword : unknownUserHash));
+    }
+
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    // True if the hash was made with another cost factor than the configured one
+    public boolean needsRehash(String encodedPassword) {
+        // $2a$10$... : the cost sits between the second and third '$'
+        int costStart = encodedPassword.indexOf('$', 1) + 1;
+        int costEnd = encodedPassword.indexOf('$', costStart);
+        if (costStart == 0 || costEnd < 0) {
+            return true;
+        }
+        try {
+            return Integer.parseInt(encodedPassword, costStart, costEnd, 10) != strength;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        try {
+            return executor.submit(() -> hashing.recordCallable(task)).get();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Password hashing queue is full, rejecting request");
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.spring.appointment.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.model.ProviderChanged;
+import com.spring.appointment.model.UserChanged;
+import com.spring.appointment.records.ProviderListResponse;
+import com.spring.appointment.repository.ProviderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The provider list as ready-to-send JSON, built with one query and kept until a provider (or a
+// provider's user) changes on this instance, as told by ProviderChanged and UserChanged. The same
+// snapshot answers single-provider lookups. Snapshots also expire after ttl so that providers
+// registered on another instance show up. The ETag is the digest of the bytes, so every instance
+// hands out the same tag for the same list and clients revalidate for nothing but the headers.
+@Component
+public class ProviderDirectory {
+    private final ProviderRepository providerRepository;
+    private final PrimaryReads primaryReads;
+    private final ObjectMapper objectMapper;
+    private final long ttlNanos;
+    // bumped on every change, so a snapshot built from older rows is never served or kept
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public ProviderDirectory(ProviderRepository providerRepository,
+                             PrimaryReads primaryReads,
+                             ObjectMapper objectMapper,
+                             @Value("${providers.directory.ttl-seconds:300}") long ttlSeconds) {
+        this.providerRepository = providerRepository;
+        this.primaryReads = primaryReads;
+        this.objectMapper = objectMapper;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public Snapshot current() {
+        Snapshot current = snapshot;
+        if (isFresh(current)) {
+            return current;
+        }
+        // one rebuild at a time, so the requests arriving after a change share a single query
+        synchronized (this) {
+            current = snapshot;
+            if (isFresh(current)) {
+                return current;
+            }
+            long seenVersion = version.get();
+            List<ProviderListResponse> providers = primaryReads.read(providerRepository::findAllListings);
+            current = new Snapshot(seenVersion, System.nanoTime(), serialize(providers), index(providers));
+            if (version.get() == seenVersion) {
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    // One provider's listing, empty if there is no such provider; a provider missing from the
+    // snapshot (say, registered on another instance since it was built) is read on its own
+    public Optional<ProviderListResponse> findListing(long providerId) {
+        ProviderListResponse listing = current().byId().get(providerId);
+        if (listing != null) {
+            return Optional.of(listing);
+        }
+        return primaryReads.read(() -> providerRepository.findListingById(providerId));
+    }
+
+    // Drops the snapshot now and again once the changing transaction commits, so a request that
+    // rebuilds it in between cannot keep the old list
+    public void invalidate() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    @EventListener
+    void providerChanged(ProviderChanged event) {
+        invalidate();
+    }
+
+    // A provider's name is part of the directory
+    @EventListener
+    void userChanged(UserChanged event) {
+        if (event.role() == UserRole.PROVIDER) {
+            invalidate();
+        }
+    }
+
+    private boolean isFresh(Snapshot current) {
+        return current != null && current.version() == version.get() && System.nanoTime() - current.builtAt() < ttlNanos;
+    }
+
+    private static Map<Long, ProviderListResponse> index(List<ProviderListResponse> providers) {
+        Map<Long, ProviderListResponse> byId = new HashMap<>(providers.size() * 2);
+        for (ProviderListResponse provider : providers) {
+            byId.put(provider.providerId(), provider);
+        }
+        return byId;
+    }
+
+    private byte[] serialize(List<ProviderListResponse> providers) {
+        try {
+            return objectMapper.writeValueAsBytes(providers);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the provider directory", e);
+        }
+    }
+
+    public record Snapshot(long version, long builtAt, byte[] json, String etag, Map<Long, ProviderListResponse> byId) {
+        Snapshot(long version, long builtAt, byte[] json, Map<Long, ProviderListResponse> byId) {
+            this(version, builtAt, json, "\"" + digest(json) + "\"", byId);
+        }
+
+        private static String digest(byte[] json) {
+            try {
+                byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(json);
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(sha256);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class ProviderService {
     private final ProviderRepository providerRepository;
 
+    @Transactional(readOnly = true)
     public Provider getProviderById(Long providerId) {
         return providerRepository.findById(providerId)
                 .orElseThrow(() -> new IllegalArgumentException("Provider not found with id: " + providerId));
@@ -0,0 +1,15 @@
+package com.spring.appointment.service;
+
+import java.time.LocalDateTime;
+
+public record SlotHold(
+        String token,
+        long customerId,
+        long providerId,
+        LocalDateTime appointmentTime,
+        long expiresAtMillis
+) {
+    boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+}
@@ -0,0 +1,208 @@
+package com.spring.appointment.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+// Short in-memory leases on (provider, slot). Nothing is written to the database until the
+// holder books. Expiry is driven by a hashed timer wheel: each hold sits in the bucket of its
+// expiry tick and a single ticker thread sweeps one bucket per tick.
+@Slf4j
+@Component
+public class SlotHoldRegistry {
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 128;
+
+    private final long ttlMillis;
+    private final StampedLock lock = new StampedLock();
+    private final Map<Long, SlotHold> bySlot = new HashMap<>();
+    private final Map<String, SlotHold> byToken = new HashMap<>();
+    private final Map<Long, SlotHold> byCustomer = new HashMap<>();
+    // provider-day -> bitmask of held slots, read on every availability request
+    private final LongIntHashMap heldByDay = new LongIntHashMap(256);
+    private final List<List<SlotHold>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private long lastTick;
+    private final ScheduledExecutorService ticker;
+
+    public SlotHoldRegistry(@Value("${booking.hold.ttl-seconds:60}") long ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.lastTick = System.currentTimeMillis() / TICK_MILLIS;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "slot-hold-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Places a hold for the customer, replacing any other hold they have
+    public SlotHold place(long customerId, long providerId, LocalDateTime appointmentTime) {
+        long now = System.currentTimeMillis();
+        long slotKey = slotKey(providerId, appointmentTime);
+        long stamp = lock.writeLock();
+        try {
+            SlotHold existing = bySlot.get(slotKey);
+            if (existing != null && !existing.isExpired(now) && existing.customerId() != customerId) {
+                throw new IllegalArgumentException("This time slot is currently held by another customer.");
+            }
+            SlotHold previous = byCustomer.get(customerId);
+            if (previous != null) {
+                remove(previous);
+            }
+            if (existing != null && existing != previous) {
+                remove(existing);
+            }
+
+            SlotHold hold = new SlotHold(UUID.randomUUID().toString(), customerId, providerId, appointmentTime, now + ttlMillis);
+            bySlot.put(slotKey, hold);
+            byToken.put(hold.token(), hold);
+            byCustomer.put(customerId, hold);
+            long dayKey = SlotOccupancyIndex.key(providerId, appointmentTime.toLocalDate());
+            heldByDay.put(dayKey, heldByDay.get(dayKey, 0) | (1 << SlotOccupancyIndex.slotIndex(appointmentTime)));
+            wheel.get(bucket(hold.expiresAtMillis())).add(hold);
+            return hold;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // True if the token is a live hold of this customer on exactly this slot
+    public boolean isHeldBy(String token, long customerId, long providerId, LocalDateTime appointmentTime) {
+        if (token == null) {
+            return false;
+        }
+        long stamp = lock.readLock();
+        try {
+            SlotHold hold = byToken.get(token);
+            return hold != null
+                    && !hold.isExpired(System.currentTimeMillis())
+                    && hold.customerId() == customerId
+                    && hold.providerId() == providerId
+                    && hold.appointmentTime().equals(appointmentTime);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isHeldByOther(long providerId, LocalDateTime appointmentTime, long customerId) {
+        long stamp = lock.readLock();
+        try {
+            SlotHold hold = bySlot.get(slotKey(providerId, appointmentTime));
+            return hold != null && !hold.isExpired(System.currentTimeMillis()) && hold.customerId() != customerId;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Bitmask of held slots for a provider-day; may include holds expired within the last tick
+    public int heldMask(long providerId, LocalDate date) {
+        long dayKey = SlotOccupancyIndex.key(providerId, date);
+        long stamp = lock.tryOptimisticRead();
+        int mask = heldByDay.get(dayKey, 0);
+        if (lock.validate(stamp)) {
+            return mask;
+        }
+        stamp = lock.readLock();
+        try {
+            return heldByDay.get(dayKey, 0);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Drops the hold if the customer owns it; returns the released hold, or null
+    public SlotHold release(String token, long customerId) {
+        long stamp = lock.writeLock();
+        try {
+            SlotHold hold = byToken.get(token);
+            if (hold == null || hold.customerId() != customerId) {
+                return null;
+            }
+            remove(hold);
+            return hold;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private void advance() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / TICK_MILLIS;
+        long stamp = lock.writeLock();
+        try {
+            int expired = 0;
+            // catch up on ticks missed by a late run, but never sweep the wheel more than once
+            for (long tick = Math.max(lastTick + 1, currentTick - WHEEL_SIZE + 1); tick <= currentTick; tick++) {
+                Iterator<SlotHold> holds = wheel.get((int) (tick & (WHEEL_SIZE - 1))).iterator();
+                while (holds.hasNext()) {
+                    SlotHold hold = holds.next();
+                    if (byToken.get(hold.token()) != hold) {
+                        holds.remove();
+                    } else if (hold.isExpired(now)) {
+                        holds.remove();
+                        remove(hold);
+                        expired++;
+                    }
+                }
+            }
+            lastTick = currentTick;
+            if (expired > 0) {
+                log.debug("Expired {} slot holds", expired);
+            }
+        } catch (RuntimeException e) {
+            log.error("Slot hold expiry failed", e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Caller holds the write lock. The wheel entry is dropped lazily on its next sweep.
+    private void remove(SlotHold hold) {
+        bySlot.remove(slotKey(hold.providerId(), hold.appointmentTime()), hold);
+        byToken.remove(hold.token(), hold);
+        byCustomer.remove(hold.customerId(), hold);
+        long dayKey = SlotOccupancyIndex.key(hold.providerId(), hold.appointmentTime().toLocalDate());
+        int mask = heldByDay.get(dayKey, 0) & ~(1 << SlotOccupancyIndex.slotIndex(hold.appointmentTime()));
+        if (mask == 0) {
+            heldByDay.remove(dayKey);
+        } else {
+            heldByDay.put(dayKey, mask);
+        }
+    }
+
+    private static int bucket(long expiresAtMillis) {
+        long tick = (expiresAtMillis + TICK_MILLIS - 1) / TICK_MILLIS;
+        return (int) (tick & (WHEEL_SIZE - 1));
+    }
+
+    // Off-grid times have no slot index; letting one through would give every such time one key
+    private static long slotKey(long providerId, LocalDateTime appointmentTime) {
+        int index = SlotOccupancyIndex.slotIndex(appointmentTime);
+        if (index < 0) {
+            throw new IllegalArgumentException("Not a bookable slot: " + appointmentTime);
+        }
+        return (SlotOccupancyIndex.key(providerId, appointmentTime.toLocalDate()) << 5) | index;
+    }
+}
@@ -0,0 +1,262 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.repository.AppointmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+// Keeps one int per provider-day where bit i means "slot i is taken" (slot 0 = 9:00,
+// slot 17 = 17:30). Days are loaded from the database on first access and kept in sync by
+// the booking, confirm and cancel paths once their transaction commits. Those hooks only see
+// this instance's writes, so the whole index is dropped every TTL and days are read afresh.
+@Slf4j
+@Component
+public class SlotOccupancyIndex {
+    public static final int FIRST_SLOT_HOUR = 9;
+    public static final int LAST_SLOT_HOUR = 18;
+    public static final int SLOT_MINUTES = 30;
+    public static final int SLOTS_PER_DAY = (LAST_SLOT_HOUR - FIRST_SLOT_HOUR) * 60 / SLOT_MINUTES;
+    public static final int ALL_SLOTS = (1 << SLOTS_PER_DAY) - 1;
+
+    private static final int FIRST_SLOT_SECOND = FIRST_SLOT_HOUR * 3600;
+    private static final int LOADED = 1 << 30;
+    private static final int NOT_LOADED = 0;
+    private static final int PRUNE_THRESHOLD = 1 << 16;
+    private static final int STRIPES = 64;
+    private static final long DAY_MASK = (1L << 24) - 1;
+
+    private final AppointmentRepository appointmentRepository;
+    private final PrimaryReads primaryReads;
+    private final long ttlNanos;
+    private final long startNanos = System.nanoTime();
+
+    private final LongIntHashMap days = new LongIntHashMap(1024);
+    private final StampedLock lock = new StampedLock();
+    // bumped on every applied change to a provider in the stripe, so a load that raced a commit
+    // is not cached while loads for other providers are unaffected
+    private final AtomicLongArray mutations = new AtomicLongArray(STRIPES);
+    // TTL periods since startup that the cached days belong to; only changed under the write lock
+    private volatile long loadedEpoch;
+
+    public SlotOccupancyIndex(AppointmentRepository appointmentRepository,
+                              PrimaryReads primaryReads,
+                              @Value("${booking.slot-index.ttl-seconds:30}") long ttlSeconds) {
+        this.appointmentRepository = appointmentRepository;
+        this.primaryReads = primaryReads;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    // Bitmask of slots still bookable on that day, past slots excluded
+    public int freeMask(long providerId, LocalDate date, LocalDateTime now) {
+        return ~occupiedMask(providerId, date) & futureMask(date, now);
+    }
+
+    public int occupiedMask(long providerId, LocalDate date) {
+        int entry = read(key(providerId, date));
+        if (entry != NOT_LOADED) {
+            return entry & ALL_SLOTS;
+        }
+        return load(providerId, date, date)[0];
+    }
+
+    // Occupancy for every day in [from, to]; days missing from the index are fetched
+    // together with a single range query
+    public int[] occupiedMasks(long providerId, LocalDate from, LocalDate to) {
+        int dayCount = (int) (to.toEpochDay() - from.toEpochDay()) + 1;
+        int[] masks = new int[dayCount];
+        int firstMissing = -1;
+        int lastMissing = -1;
+        for (int day = 0; day < dayCount; day++) {
+            int entry = read(key(providerId, from.plusDays(day)));
+            if (entry == NOT_LOADED) {
+                if (firstMissing < 0) {
+                    firstMissing = day;
+                }
+                lastMissing = day;
+            } else {
+                masks[day] = entry & ALL_SLOTS;
+            }
+        }
+        if (firstMissing >= 0) {
+            int[] loaded = load(providerId, from.plusDays(firstMissing), from.plusDays(lastMissing));
+            System.arraycopy(loaded, 0, masks, firstMissing, loaded.length);
+        }
+        return masks;
+    }
+
+    public void markBooked(long providerId, LocalDateTime slot) {
+        afterCommit(() -> apply(providerId, slot, true));
+    }
+
+    public void markReleased(long providerId, LocalDateTime slot) {
+        afterCommit(() -> apply(providerId, slot, false));
+    }
+
+    // Bitmask of slots on that day that start strictly after now
+    public static int futureMask(LocalDate date, LocalDateTime now) {
+        int cmp = date.compareTo(now.toLocalDate());
+        if (cmp < 0) {
+            return 0;
+        }
+        if (cmp > 0) {
+            return ALL_SLOTS;
+        }
+        int secondOfDay = now.toLocalTime().toSecondOfDay();
+        if (secondOfDay < FIRST_SLOT_SECOND) {
+            return ALL_SLOTS;
+        }
+        int passed = Math.min(SLOTS_PER_DAY, (secondOfDay - FIRST_SLOT_SECOND) / (SLOT_MINUTES * 60) + 1);
+        return ALL_SLOTS & ~((1 << passed) - 1);
+    }
+
+    // Slot number for a time on the grid, or -1 if the time is not a bookable slot start
+    public static int slotIndex(LocalDateTime time) {
+        int minuteOfDay = time.getHour() * 60 + time.getMinute();
+        int offset = minuteOfDay - FIRST_SLOT_HOUR * 60;
+        if (time.getSecond() != 0 || time.getNano() != 0 || offset < 0 || offset % SLOT_MINUTES != 0) {
+            return -1;
+        }
+        int index = offset / SLOT_MINUTES;
+        return index < SLOTS_PER_DAY ? index : -1;
+    }
+
+    public static LocalDateTime slotStart(LocalDate date, int index) {
+        return date.atTime(FIRST_SLOT_HOUR, 0).plusMinutes((long) index * SLOT_MINUTES);
+    }
+
+    private int read(long key) {
+        if (epoch() != loadedEpoch) {
+            expire();
+        }
+        long stamp = lock.tryOptimisticRead();
+        int entry = days.get(key, NOT_LOADED);
+        if (lock.validate(stamp)) {
+            return entry;
+        }
+        stamp = lock.readLock();
+        try {
+            return days.get(key, NOT_LOADED);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private int[] load(long providerId, LocalDate from, LocalDate to) {
+        int stripe = stripe(providerId);
+        long seenMutations = mutations.get(stripe);
+        long seenEpoch = epoch();
+        List<LocalDateTime> bookedTimes = primaryReads.read(() -> appointmentRepository.findBookedTimesByProviderAndDate(
+                providerId, from.atStartOfDay(), to.plusDays(1).atStartOfDay()
+        ));
+        long firstDay = from.toEpochDay();
+        int[] masks = new int[(int) (to.toEpochDay() - firstDay) + 1];
+        for (LocalDateTime booked : bookedTimes) {
+            int index = slotIndex(booked);
+            if (index >= 0) {
+                masks[(int) (booked.toLocalDate().toEpochDay() - firstDay)] |= 1 << index;
+            }
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            // a load that started before the index was dropped is not cached into the new period
+            if (mutations.get(stripe) == seenMutations && loadedEpoch == seenEpoch) {
+                if (days.size() >= PRUNE_THRESHOLD) {
+                    pruneBefore(LocalDate.now().toEpochDay());
+                }
+                for (int day = 0; day < masks.length; day++) {
+                    long key = key(providerId, firstDay + day);
+                    int existing = days.get(key, NOT_LOADED);
+                    if (existing != NOT_LOADED) {
+                        masks[day] = existing & ALL_SLOTS;
+                    } else {
+                        days.put(key, masks[day] | LOADED);
+                    }
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return masks;
+    }
+
+    private void apply(long providerId, LocalDateTime slot, boolean booked) {
+        int index = slotIndex(slot);
+        if (index < 0) {
+            return;
+        }
+        long key = key(providerId, slot.toLocalDate());
+        long stamp = lock.writeLock();
+        try {
+            mutations.incrementAndGet(stripe(providerId));
+            int entry = days.get(key, NOT_LOADED);
+            // days that were never read are loaded fresh from the database on first use
+            if (entry == NOT_LOADED) {
+                return;
+            }
+            days.put(key, booked ? entry | (1 << index) : entry & ~(1 << index));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void expire() {
+        long stamp = lock.writeLock();
+        try {
+            long now = epoch();
+            if (now != loadedEpoch) {
+                int before = days.size();
+                days.retainIf(key -> false);
+                loadedEpoch = now;
+                log.debug("Dropped {} expired provider-days from slot index", before);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private long epoch() {
+        return (System.nanoTime() - startNanos) / ttlNanos;
+    }
+
+    private void pruneBefore(long epochDay) {
+        int before = days.size();
+        days.retainIf(key -> (key & DAY_MASK) >= epochDay);
+        log.debug("Pruned {} past provider-days from slot index", before - days.size());
+    }
+
+    private static int stripe(long providerId) {
+        return (int) (providerId ^ (providerId >>> 32)) & (STRIPES - 1);
+    }
+
+    static long key(long providerId, LocalDate date) {
+        return key(providerId, date.toEpochDay());
+    }
+
+    static long key(long providerId, long epochDay) {
+        return (providerId << 24) | (epochDay & DAY_MASK);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.records.BookedSlot;
+import com.spring.appointment.records.EarliestSlotsResponse;
+import com.spring.appointment.records.ProviderListResponse;
+import com.spring.appointment.records.ProviderSlot;
+import com.spring.appointment.repository.AppointmentRepository;
+import com.spring.appointment.repository.ProviderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class SlotSearchService {
+    public static final int MAX_RESULTS = 100;
+    // below this many providers the fork/join overhead outweighs the scan itself
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    private final ProviderRepository providerRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final SlotHoldRegistry slotHoldRegistry;
+
+    // Earliest bookable slots for a service type across all of its providers, ordered by time
+    public EarliestSlotsResponse findEarliestSlots(String serviceType, int limit) {
+        long started = System.nanoTime();
+
+        if (serviceType == null || serviceType.isBlank()) {
+            throw new IllegalArgumentException("Service type is required");
+        }
+        if (limit < 1 || limit > MAX_RESULTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_RESULTS);
+        }
+
+        List<ProviderListResponse> providers = providerRepository.findListingsByServiceType(serviceType.trim());
+        if (providers.isEmpty()) {
+            return EarliestSlotsResponse.of(serviceType, limit, List.of(), elapsedMillis(started));
+        }
+
+        // Same window validateAppointmentTime accepts
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime earliest = now.plusHours(AppointmentService.MIN_HOURS_IN_ADVANCE);
+        LocalDateTime latest = now.plusDays(AppointmentService.BOOKING_HORIZON_DAYS);
+        LocalDate firstDay = earliest.toLocalDate();
+        LocalDate lastDay = latest.toLocalDate();
+        long firstEpochDay = firstDay.toEpochDay();
+        int dayCount = (int) (lastDay.toEpochDay() - firstEpochDay) + 1;
+
+        int[] openSlots = new int[dayCount];
+        for (int day = 0; day < dayCount; day++) {
+            LocalDate date = firstDay.plusDays(day);
+            if (date.getDayOfWeek().getValue() > 5) {
+                continue;
+            }
+            int mask = SlotOccupancyIndex.futureMask(date, earliest);
+            if (day == dayCount - 1) {
+                mask &= ~SlotOccupancyIndex.futureMask(date, latest);
+            }
+            openSlots[day] = mask;
+        }
+
+        // One query for every provider's bookings in the window
+        Map<Long, int[]> occupiedByProvider = new HashMap<>(providers.size() * 2);
+        for (ProviderListResponse provider : providers) {
+            occupiedByProvider.put(provider.providerId(), new int[dayCount]);
+        }
+        List<BookedSlot> bookedSlots = appointmentRepository.findBookedSlotsByProviders(
+                occupiedByProvider.keySet(), firstDay.atStartOfDay(), lastDay.plusDays(1).atStartOfDay()
+        );
+        for (BookedSlot booked : bookedSlots) {
+            int index = SlotOccupancyIndex.slotIndex(booked.appointmentTime());
+            if (index >= 0) {
+                int day = (int) (booked.appointmentTime().toLocalDate().toEpochDay() - firstEpochDay);
+                occupiedByProvider.get(booked.providerId())[day] |= 1 << index;
+            }
+        }
+
+        // Slots other customers are holding are not offered either
+        for (Map.Entry<Long, int[]> entry : occupiedByProvider.entrySet()) {
+            int[] occupied = entry.getValue();
+            for (int day = 0; day < dayCount; day++) {
+                if (openSlots[day] != 0) {
+                    occupied[day] |= slotHoldRegistry.heldMask(entry.getKey(), firstDay.plusDays(day));
+                }
+            }
+        }
+
+        // Each provider can contribute at most `limit` slots to the answer, so stop there
+        List<int[]> freeSlots = (providers.size() >= PARALLEL_THRESHOLD ? providers.parallelStream() : providers.stream())
+                .map(provider -> firstFreeSlots(openSlots, occupiedByProvider.get(provider.providerId()), limit))
+                .toList();
+
+        List<ProviderSlot> result = merge(providers, freeSlots, firstDay, limit);
+
+        long tookMillis = elapsedMillis(started);
+        log.debug("Earliest-slot search for '{}' over {} providers took {} ms", serviceType, providers.size(), tookMillis);
+        return EarliestSlotsResponse.of(serviceType, limit, result, tookMillis);
+    }
+
+    // Ascending slot numbers (day * SLOTS_PER_DAY + slot) that are open and not booked
+    private static int[] firstFreeSlots(int[] openSlots, int[] occupied, int limit) {
+        int[] found = new int[limit];
+        int count = 0;
+        for (int day = 0; day < openSlots.length && count < limit; day++) {
+            for (int free = openSlots[day] & ~occupied[day]; free != 0 && count < limit; free &= free - 1) {
+                found[count++] = day * SlotOccupancyIndex.SLOTS_PER_DAY + Integer.numberOfTrailingZeros(free);
+            }
+        }
+        return count == limit ? found : Arrays.copyOf(found, count);
+    }
+
+    // k-way merge of the per-provider sequences, stopping after `limit` results
+    private static List<ProviderSlot> merge(List<ProviderListResponse> providers, List<int[]> freeSlots,
+                                            LocalDate firstDay, int limit) {
+        // heap entries are {providerIndex, position}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, providers.size()), (a, b) -> {
+            int bySlot = Integer.compare(freeSlots.get(a[0])[a[1]], freeSlots.get(b[0])[b[1]]);
+            return bySlot != 0 ? bySlot : Long.compare(providers.get(a[0]).providerId(), providers.get(b[0]).providerId());
+        });
+        for (int i = 0; i < providers.size(); i++) {
+            if (freeSlots.get(i).length > 0) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+
+        List<ProviderSlot> result = new ArrayList<>(limit);
+        while (result.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            ProviderListResponse provider = providers.get(head[0]);
+            int slot = freeSlots.get(head[0])[head[1]];
+            LocalDate date = firstDay.plusDays(slot / SlotOccupancyIndex.SLOTS_PER_DAY);
+            result.add(new ProviderSlot(
+                    provider.providerId(),
+                    provider.name(),
+                    SlotOccupancyIndex.slotStart(date, slot % SlotOccupancyIndex.SLOTS_PER_DAY),
+                    SlotOccupancyIndex.SLOT_MINUTES
+            ));
+            if (++head[1] < freeSlots.get(head[0]).length) {
+                heads.add(head);
+            }
+        }
+        return result;
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,93 @@
+package com.spring.appointment.service;
+
+import java.util.concurrent.TimeUnit;
+
+// Fixed-size table of token buckets keyed by a 64-bit hash, in three primitive arrays so a
+// check allocates nothing and memory never grows. A key lives in one of WAYS cells of its set;
+// when all are taken the least recently used one is reused. A bucket idle long enough to be
+// full again is the same as no bucket, so that is all the expiry it needs. Tokens are counted
+// in thousandths so refilling needs no floating point. Thread-safe: sets are guarded by
+// striped locks.
+final class TokenBucketTable {
+    private static final int WAYS = 8;
+    private static final int STRIPES = 64;
+    private static final int ONE_TOKEN = 1000;
+
+    private final long[] keys;
+    private final long[] touchedAt;
+    private final int[] tokens;
+    private final int setMask;
+    private final Object[] locks = new Object[STRIPES];
+    private final int capacity;
+    private final long nanosPerToken;
+    // time to refill an empty bucket, beyond which the elapsed time no longer matters
+    private final long fullRefillNanos;
+
+    TokenBucketTable(int slots, int capacity, long refillEvery, TimeUnit unit) {
+        if (capacity < 1 || refillEvery < 1) {
+            throw new IllegalArgumentException("Bucket capacity and refill interval must be positive");
+        }
+        int sets = Integer.highestOneBit(Math.max(STRIPES, slots / WAYS) - 1) << 1;
+        this.keys = new long[sets * WAYS];
+        this.touchedAt = new long[sets * WAYS];
+        this.tokens = new int[sets * WAYS];
+        this.setMask = sets - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        this.capacity = capacity * ONE_TOKEN;
+        this.nanosPerToken = unit.toNanos(refillEvery);
+        this.fullRefillNanos = nanosPerToken * capacity;
+    }
+
+    // Takes a token for the key; 0 if one was available, else the nanos until the next one is
+    long tryAcquire(long key, long now) {
+        if (key == 0L) {
+            key = 1L;
+        }
+        int set = mix(key) & setMask;
+        int base = set * WAYS;
+        synchronized (locks[set & (STRIPES - 1)]) {
+            int victim = base;
+            for (int cell = base; cell < base + WAYS; cell++) {
+                if (keys[cell] == key) {
+                    return take(cell, now);
+                }
+                if (keys[cell] == 0L) {
+                    victim = cell;
+                    break;
+                }
+                if (touchedAt[cell] - touchedAt[victim] < 0) {
+                    victim = cell;
+                }
+            }
+            keys[victim] = key;
+            touchedAt[victim] = now;
+            tokens[victim] = capacity - ONE_TOKEN;
+            return 0L;
+        }
+    }
+
+    private long take(int cell, long now) {
+        long elapsed = Math.min(now - touchedAt[cell], fullRefillNanos);
+        long refilled = elapsed > 0 ? elapsed * ONE_TOKEN / nanosPerToken : 0;
+        if (tokens[cell] + refilled >= capacity) {
+            tokens[cell] = capacity;
+            touchedAt[cell] = now;
+        } else {
+            // only move the clock by the time paid out, so frequent calls still accrue fractions
+            tokens[cell] += (int) refilled;
+            touchedAt[cell] += refilled * nanosPerToken / ONE_TOKEN;
+        }
+        if (tokens[cell] >= ONE_TOKEN) {
+            tokens[cell] -= ONE_TOKEN;
+            return 0L;
+        }
+        return (ONE_TOKEN - tokens[cell]) * nanosPerToken / ONE_TOKEN;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
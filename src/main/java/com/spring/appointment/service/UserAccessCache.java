@@ -0,0 +1,84 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.model.UserChanged;
+import com.spring.appointment.records.UserAccess;
+import com.spring.appointment.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Role and status per user for request authentication, so an authenticated call costs no query.
+// Updating a User through JPA evicts its entry (see UserChanged). Entries also expire after ttl
+// so that changes made on another instance or by bulk updates apply. The cache holds about
+// max-entries users; past that the least recently used make room.
+@Component
+public class UserAccessCache {
+    private static final int STRIPES = 64;
+
+    private final UserRepository userRepository;
+    private final long ttlNanos;
+    private final BoundedLruCache<Long, Entry> entries;
+    // bumped on every eviction in the stripe so a load that raced an update is not cached
+    private final AtomicLongArray evictions = new AtomicLongArray(STRIPES);
+
+    public UserAccessCache(UserRepository userRepository,
+                           @Value("${security.user-cache.ttl-seconds:60}") long ttlSeconds,
+                           @Value("${security.user-cache.max-entries:65536}") int maxEntries) {
+        this.userRepository = userRepository;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new BoundedLruCache<>(maxEntries);
+    }
+
+    // Empty if the user no longer exists
+    public Optional<UserAccess> get(long userId) {
+        long now = System.nanoTime();
+        Entry cached = entries.get(userId);
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            return Optional.ofNullable(cached.access());
+        }
+
+        int stripe = stripe(userId);
+        long seenEvictions = evictions.get(stripe);
+        UserAccess access = userRepository.findAccessById(userId).orElse(null);
+        if (evictions.get(stripe) == seenEvictions) {
+            entries.put(userId, new Entry(access, now));
+        }
+        return Optional.ofNullable(access);
+    }
+
+    // Drops the entry now and again once the changing transaction commits, so a request that
+    // reloads it in between cannot keep the old role or status
+    public void evict(long userId) {
+        evictNow(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(userId);
+                }
+            });
+        }
+    }
+
+    @EventListener
+    void userChanged(UserChanged event) {
+        evict(event.userId());
+    }
+
+    private void evictNow(long userId) {
+        evictions.incrementAndGet(stripe(userId));
+        entries.remove(userId);
+    }
+
+    private static int stripe(long userId) {
+        return (int) (userId ^ (userId >>> 32)) & (STRIPES - 1);
+    }
+
+    private record Entry(UserAccess access, long loadedAt) {}
+}
@@ -0,0 +1,370 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.TransactionStatus;
+import com.spring.appointment.enums.TransactionType;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.model.Appointment;
+import com.spring.appointment.model.Transaction;
+import com.spring.appointment.model.User;
+import com.spring.appointment.model.Wallet;
+import com.spring.appointment.model.WalletSnapshot;
+import com.spring.appointment.model.WalletStripe;
+import com.spring.appointment.records.LedgerTotals;
+import com.spring.appointment.records.WalletSummary;
+import com.spring.appointment.repository.TransactionRepository;
+import com.spring.appointment.repository.WalletRepository;
+import com.spring.appointment.repository.WalletSnapshotRepository;
+import com.spring.appointment.repository.WalletStripeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Wallet balances derived from the append-only transactions ledger. A balance is the wallet's
+// latest snapshot plus the entries not yet folded into one; entries are only ever inserted, so a
+// busy provider wallet takes inserts instead of updates to a single row.
+// Provider wallets can optionally be split into stripes: credits land on a random stripe and
+// debits draw from as few stripes as they need, locking only those.
+@Slf4j
+@Service
+public class WalletLedger {
+    // a stripe locked out of order is tried this often, backing off in between, before the debit fails
+    private static final int OUT_OF_ORDER_LOCK_ATTEMPTS = 3;
+    private static final long OUT_OF_ORDER_BACKOFF_MILLIS = 50;
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final WalletSnapshotRepository walletSnapshotRepository;
+    private final WalletStripeRepository walletStripeRepository;
+    // READ COMMITTED, so marking entries skips ones still uncommitted instead of waiting on them
+    private final TransactionTemplate snapshotTemplate;
+    private final PrimaryReads primaryReads;
+    private final int providerStripes;
+    private final long balanceTtlNanos;
+
+    // a wallet never changes owner, so this mapping never goes stale
+    private final Map<Long, Long> walletIdsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> stripesByWallet = new ConcurrentHashMap<>();
+    private final Map<Long, CachedBalance> balances = new ConcurrentHashMap<>();
+    // bumped whenever a transaction that appended entries ends, so a read that raced it is not cached
+    private final AtomicLong appends = new AtomicLong();
+
+    public WalletLedger(WalletRepository walletRepository,
+                        TransactionRepository transactionRepository,
+                        WalletSnapshotRepository walletSnapshotRepository,
+                        WalletStripeRepository walletStripeRepository,
+                        TransactionTemplate transactionTemplate,
+                        PrimaryReads primaryReads,
+                        @Value("${wallet.provider-stripes:1}") int providerStripes,
+                        @Value("${wallet.balance-cache.ttl-seconds:30}") long balanceTtlSeconds) {
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.walletSnapshotRepository = walletSnapshotRepository;
+        this.walletStripeRepository = walletStripeRepository;
+        this.snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.primaryReads = primaryReads;
+        this.providerStripes = Math.max(1, providerStripes);
+        this.balanceTtlNanos = TimeUnit.SECONDS.toNanos(balanceTtlSeconds);
+    }
+
+    // Provider wallets get wallet.provider-stripes stripes; everyone else has one
+    public Wallet openWallet(User user) {
+        Wallet wallet = new Wallet(user);
+        if (user.getRole() == UserRole.PROVIDER) {
+            wallet.setStripes(providerStripes);
+        }
+        walletRepository.save(wallet);
+
+        List<WalletStripe> stripeRows = new ArrayList<>(wallet.getStripes());
+        for (int stripe = 1; stripe < wallet.getStripes(); stripe++) {
+            stripeRows.add(new WalletStripe(wallet, stripe));
+        }
+        walletStripeRepository.saveAll(stripeRows);
+        return wallet;
+    }
+
+    public long walletIdOf(long userId) {
+        Long walletId = walletIdsByUser.get(userId);
+        if (walletId != null) {
+            return walletId;
+        }
+        // from the primary: a wallet opened moments ago may not have reached the replica
+        List<WalletSummary> found = primaryReads.read(() -> walletRepository.findSummariesByUserIds(List.of(userId)));
+        if (found.isEmpty()) {
+            throw new IllegalArgumentException("Wallet not found for user id: " + userId);
+        }
+        walletId = found.get(0).walletId();
+        walletIdsByUser.put(userId, walletId);
+        stripesByWallet.put(walletId, Math.max(1, found.get(0).stripes()));
+        return walletId;
+    }
+
+    // Committed balance for display, kept in memory until the next entry for the wallet commits or
+    // rolls back on this instance, and at most ttl so entries appended by another instance show up.
+    // Debits never use it: tryDebit reads the balance under the wallet lock.
+    public long balanceOf(long walletId) {
+        long now = System.nanoTime();
+        CachedBalance cached = balances.get(walletId);
+        if (cached != null && now - cached.loadedAt() < balanceTtlNanos) {
+            return cached.balance();
+        }
+        long seenAppends = appends.get();
+        long balance = primaryReads.read(() -> currentBalance(walletId));
+        // a transaction that appended entries sees them before they commit
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            CachedBalance loaded = new CachedBalance(balance, now);
+            balances.put(walletId, loaded);
+            if (appends.get() != seenAppends) {
+                balances.remove(walletId, loaded);
+            }
+        }
+        return balance;
+    }
+
+    // Balance as seen by the current transaction, never cached
+    public long currentBalance(long walletId) {
+        return transactionRepository.balanceOf(walletId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void credit(long walletId, TransactionType type, long amountMinor, Appointment appointment) {
+        int stripes = stripesOf(walletId);
+        int stripe = stripes == 1 ? 0 : ThreadLocalRandom.current().nextInt(stripes);
+        append(walletId, stripe, type, amountMinor, appointment);
+    }
+
+    // Appends the debit only if the wallet covers it. Debits on one wallet queue on its row lock;
+    // the caller's transaction must run at READ COMMITTED so the balance read once the lock is
+    // granted includes the debit that held it before.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean tryDebit(long walletId, TransactionType type, long amountMinor, Appointment appointment) {
+        int stripes = stripesOf(walletId);
+        if (stripes > 1) {
+            return tryDebitAcrossStripes(walletId, stripes, type, amountMinor, appointment);
+        }
+        walletRepository.lockById(walletId);
+        if (currentBalance(walletId) < amountMinor) {
+            return false;
+        }
+        append(walletId, 0, type, amountMinor, appointment);
+        return true;
+    }
+
+    // Plans the draw from the richest stripes, then locks just those. Stripes are always locked
+    // in ascending order so two debits cannot deadlock; if a concurrent debit drained a planned
+    // stripe meanwhile, stripes above the last locked one make up the difference, then the ones
+    // below it. Those are taken out of order, so they never queue on the lock: a stripe another
+    // debit holds is tried again after a short jittered backoff, and only if it is still held after
+    // a few attempts does this debit fail with a ConcurrencyFailureException. A holder that is itself
+    // queued behind this debit is released by that failure, so the two cannot deadlock.
+    private boolean tryDebitAcrossStripes(long walletId, int stripes, TransactionType type, long amountMinor,
+                                          Appointment appointment) {
+        long[] balances = stripeBalances(walletId, stripes);
+        List<Integer> plan = new ArrayList<>();
+        long planned = 0;
+        List<Integer> richestFirst = new ArrayList<>(stripes);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            richestFirst.add(stripe);
+        }
+        richestFirst.sort(Comparator.comparingLong((Integer stripe) -> balances[stripe]).reversed());
+        for (int stripe : richestFirst) {
+            if (planned >= amountMinor || balances[stripe] <= 0) {
+                break;
+            }
+            plan.add(stripe);
+            planned += balances[stripe];
+        }
+        if (planned < amountMinor) {
+            return false;
+        }
+        plan.sort(null);
+
+        for (int stripe : plan) {
+            lockStripe(walletId, stripe);
+        }
+        long[] locked = stripeBalances(walletId, stripes);
+        long available = 0;
+        for (int stripe : plan) {
+            available += Math.max(0, locked[stripe]);
+        }
+        for (int stripe = plan.get(plan.size() - 1) + 1; stripe < stripes && available < amountMinor; stripe++) {
+            lockStripe(walletId, stripe);
+            locked = stripeBalances(walletId, stripes);
+            plan.add(stripe);
+            available = 0;
+            for (int drawn : plan) {
+                available += Math.max(0, locked[drawn]);
+            }
+        }
+        for (int stripe = 0; stripe < stripes && available < amountMinor; stripe++) {
+            if (plan.contains(stripe)) {
+                continue;
+            }
+            lockStripeOutOfOrder(walletId, stripe);
+            locked = stripeBalances(walletId, stripes);
+            plan.add(stripe);
+            available = 0;
+            for (int drawn : plan) {
+                available += Math.max(0, locked[drawn]);
+            }
+        }
+        if (available < amountMinor) {
+            return false;
+        }
+
+        long remaining = amountMinor;
+        for (int stripe : plan) {
+            long take = Math.min(Math.max(0, locked[stripe]), remaining);
+            if (take > 0) {
+                append(walletId, stripe, type, take, appointment);
+                remaining -= take;
+            }
+        }
+        return true;
+    }
+
+    // Two statements, which is safe once the stripes are locked: the snapshot job takes all of
+    // them before it marks anything
+    private long[] stripeBalances(long walletId, int stripes) {
+        long[] balances = new long[stripes];
+        for (WalletSnapshot snapshot : walletSnapshotRepository.findLatestByWalletId(walletId)) {
+            if (snapshot.getStripe() < stripes) {
+                balances[snapshot.getStripe()] += snapshot.getBalanceMinor();
+            }
+        }
+        for (LedgerTotals totals : transactionRepository.sumUnsettledByStripe(walletId)) {
+            if (totals.stripe() < stripes) {
+                balances[totals.stripe()] += totals.deltaMinor();
+            }
+        }
+        return balances;
+    }
+
+    private void lockStripe(long walletId, int stripe) {
+        if (stripe == 0) {
+            walletRepository.lockById(walletId);
+        } else {
+            walletStripeRepository.lockByWalletAndStripe(walletId, stripe);
+        }
+    }
+
+    private void lockStripeOutOfOrder(long walletId, int stripe) {
+        for (int attempt = 1; !tryLockStripe(walletId, stripe); attempt++) {
+            if (attempt == OUT_OF_ORDER_LOCK_ATTEMPTS) {
+                throw new CannotAcquireLockException("Stripe " + stripe + " of wallet " + walletId + " is busy");
+            }
+            long backoff = OUT_OF_ORDER_BACKOFF_MILLIS * attempt
+                    + ThreadLocalRandom.current().nextLong(OUT_OF_ORDER_BACKOFF_MILLIS);
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CannotAcquireLockException("Interrupted waiting for stripe " + stripe + " of wallet " + walletId);
+            }
+        }
+    }
+
+    private boolean tryLockStripe(long walletId, int stripe) {
+        Long locked = stripe == 0
+                ? walletRepository.tryLockById(walletId)
+                : walletStripeRepository.tryLockByWalletAndStripe(walletId, stripe);
+        return locked != null;
+    }
+
+    private int stripesOf(long walletId) {
+        Integer stripes = stripesByWallet.get(walletId);
+        if (stripes == null) {
+            stripes = Math.max(1, walletRepository.findStripesById(walletId)
+                    .orElseThrow(() -> new IllegalArgumentException("Wallet not found with id: " + walletId)));
+            stripesByWallet.put(walletId, stripes);
+        }
+        return stripes;
+    }
+
+    // Folds every wallet's unmarked entries into a new snapshot generation. Entries are marked
+    // rather than cut by time, so one that commits after a run is simply folded by the next.
+    @Scheduled(fixedDelayString = "${wallet.snapshot.interval-ms:300000}",
+            initialDelayString = "${wallet.snapshot.interval-ms:300000}")
+    public void takeSnapshots() {
+        List<Long> walletIds = transactionRepository.findWalletIdsWithUnsettledEntries();
+        for (Long walletId : walletIds) {
+            snapshotTemplate.executeWithoutResult(status -> snapshot(walletId));
+        }
+        log.debug("Took wallet snapshots for {} wallets", walletIds.size());
+    }
+
+    private void snapshot(long walletId) {
+        // every stripe, in ascending order like the debits, so no debit is between its reads
+        int stripes = stripesOf(walletId);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            lockStripe(walletId, stripe);
+        }
+        List<WalletSnapshot> latest = walletSnapshotRepository.findLatestByWalletId(walletId);
+        long generation = latest.isEmpty() ? 1 : latest.get(0).getGeneration() + 1;
+        // mark first, then sum what was marked: an entry committing in between stays for next time
+        if (transactionRepository.settle(walletId, generation) == 0) {
+            return;
+        }
+        Map<Integer, WalletSnapshot> byStripe = new TreeMap<>();
+        for (WalletSnapshot previous : latest) {
+            byStripe.put(previous.getStripe(), WalletSnapshot.builder()
+                    .wallet(walletRepository.getReferenceById(walletId))
+                    .stripe(previous.getStripe())
+                    .balanceMinor(previous.getBalanceMinor())
+                    .generation(generation)
+                    .build());
+        }
+        for (LedgerTotals totals : transactionRepository.sumSettledByStripe(walletId, generation)) {
+            WalletSnapshot next = byStripe.computeIfAbsent(totals.stripe(), stripe -> WalletSnapshot.builder()
+                    .wallet(walletRepository.getReferenceById(walletId))
+                    .stripe(stripe)
+                    .generation(generation)
+                    .build());
+            next.setBalanceMinor(next.getBalanceMinor() + totals.deltaMinor());
+        }
+        walletSnapshotRepository.saveAll(byStripe.values());
+    }
+
+    private void append(long walletId, int stripe, TransactionType type, long amountMinor, Appointment appointment) {
+        transactionRepository.save(Transaction.builder()
+                .wallet(walletRepository.getReferenceById(walletId))
+                .stripe(stripe)
+                .appointment(appointment)
+                .amountMinor(amountMinor)
+                .type(type)
+                .status(TransactionStatus.SUCCESS)
+                .build());
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(WalletLedger.this);
+                appends.incrementAndGet();
+                balances.remove(walletId);
+            }
+        });
+    }
+
+    private record CachedBalance(long balance, long loadedAt) {}
+}
@@ -0,0 +1,8 @@
+-- Indexes for the repository queries that the earlier versions leave to a scan or a filesort.
+-- Each one is checked against its query's plan in SchemaQueryPlanTest.
+
+-- countUnread / markAllRead / markRead: one user's rows by status
+CREATE INDEX idx_notifications_user_status ON notifications (user_id, status);
+
+-- claimPending: PENDING rows already in (user_id, notification_id) order
+CREATE INDEX idx_notifications_status_user ON notifications (status, user_id, notification_id);
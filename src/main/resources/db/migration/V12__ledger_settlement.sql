@@ -0,0 +1,24 @@
+-- Ledger entries are folded into snapshots by marking them with the snapshot's generation
+-- instead of by a created_at cut, so an entry that commits late, or was stamped by a skewed
+-- clock, is still counted: a balance is the latest generation plus every unmarked entry.
+
+ALTER TABLE wallet_snapshots ADD COLUMN generation BIGINT NOT NULL DEFAULT 1;
+ALTER TABLE wallet_snapshots ALTER COLUMN generation DROP DEFAULT;
+ALTER TABLE transactions ADD COLUMN settled_generation BIGINT;
+
+-- V3 seeded each wallet's one snapshot from its stored balance, which reflected every entry
+UPDATE transactions SET settled_generation = 1;
+
+CREATE INDEX idx_wallet_snapshots_wallet_generation ON wallet_snapshots (wallet_id, generation);
+DROP INDEX idx_wallet_snapshots_wallet_covered ON wallet_snapshots;
+ALTER TABLE wallet_snapshots DROP COLUMN covered_until;
+ALTER TABLE wallet_snapshots DROP COLUMN last_sequence;
+
+-- Balances sum a wallet's unmarked entries: everything the sums read is in the index, so they
+-- never touch the rows. Replaces idx_transactions_wallet_created, which the FK used.
+CREATE INDEX idx_transactions_wallet_unsettled
+    ON transactions (wallet_id, settled_generation, status, type, stripe, amount_minor);
+DROP INDEX idx_transactions_wallet_created ON transactions;
+
+-- Snapshot job: wallets with unmarked entries
+CREATE INDEX idx_transactions_unsettled_wallet ON transactions (settled_generation, wallet_id);
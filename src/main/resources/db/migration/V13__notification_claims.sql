@@ -0,0 +1,4 @@
+-- Email delivery claims PENDING rows with a lease instead of holding row locks while it talks
+-- to SMTP (see EmailDeliveryService). A claim left behind by a crashed instance lapses.
+
+ALTER TABLE notifications ADD COLUMN claimed_until DATETIME(6) NULL;
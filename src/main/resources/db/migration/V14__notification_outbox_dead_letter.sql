@@ -0,0 +1,14 @@
+-- Outbox events that used up notification.dispatcher.max-attempts are moved here, so the
+-- dispatcher never scans them again and they can be inspected or replayed by hand
+
+CREATE TABLE notification_outbox_dead (
+    event_id       BIGINT      NOT NULL,
+    type           ENUM ('APPOINTMENT_BOOKED', 'APPOINTMENT_CANCELLED', 'APPOINTMENT_CONFIRMED') NOT NULL,
+    appointment_id BIGINT      NOT NULL,
+    actor_id       BIGINT,
+    attempts       INTEGER     NOT NULL,
+    created_at     DATETIME(6) NOT NULL,
+    failed_at      DATETIME(6) NOT NULL,
+    last_error     VARCHAR(1000),
+    PRIMARY KEY (event_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,14 @@
+-- Reading a notification in the app is tracked apart from its email delivery: marking it read
+-- set status = 'READ', which took PENDING rows away from email delivery and FAILED rows lost
+-- their failure. Rows read so far keep their read time; whether they were mailed is not known
+-- any more, so they count as SENT.
+
+ALTER TABLE notifications ADD COLUMN read_at DATETIME(6) NULL;
+
+UPDATE notifications SET read_at = COALESCE(created_at, CURRENT_TIMESTAMP(6)), status = 'SENT' WHERE status = 'READ';
+
+ALTER TABLE notifications MODIFY status ENUM ('FAILED', 'PENDING', 'SENT') NOT NULL;
+
+-- countUnread / markAllRead / markRead: one user's unread rows
+DROP INDEX idx_notifications_user_status ON notifications;
+CREATE INDEX idx_notifications_user_read ON notifications (user_id, read_at);
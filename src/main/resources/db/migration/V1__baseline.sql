@@ -0,0 +1,75 @@
+-- The schema as Hibernate's ddl-auto=update built it before Flyway took over. An existing
+-- database has exactly these tables and is baselined at this version
+-- (spring.flyway.baseline-on-migrate), so V2 onwards upgrade it; an empty database starts here.
+-- Constraint names are the ones Hibernate generated, so both kinds end up alike.
+
+CREATE TABLE users (
+    user_id    BIGINT       NOT NULL AUTO_INCREMENT,
+    name       VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    role       ENUM ('ADMIN', 'CUSTOMER', 'PROVIDER') NOT NULL,
+    status     ENUM ('ACTIVE', 'BLOCKED') NOT NULL,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    PRIMARY KEY (user_id),
+    CONSTRAINT UK6dotkott2kjsp8vw4d0m25fb7 UNIQUE (email)
+) ENGINE = InnoDB;
+
+CREATE TABLE providers (
+    provider_id  BIGINT       NOT NULL AUTO_INCREMENT,
+    user_id      BIGINT       NOT NULL,
+    service_type VARCHAR(255) NOT NULL,
+    bio          TEXT,
+    PRIMARY KEY (provider_id),
+    CONSTRAINT UK6hwc6g14ch73rnff5iumpyou0 UNIQUE (user_id),
+    CONSTRAINT FKlymp42tvombik3t66um6ocsba FOREIGN KEY (user_id) REFERENCES users (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE wallets (
+    wallet_id    BIGINT    NOT NULL AUTO_INCREMENT,
+    user_id      BIGINT    NOT NULL,
+    balance      FLOAT(53) NOT NULL,
+    last_updated DATETIME(6),
+    PRIMARY KEY (wallet_id),
+    CONSTRAINT UKsswfdl9fq40xlkove1y5kc7kv UNIQUE (user_id),
+    CONSTRAINT FKc1foyisidw7wqqrkamafuwn4e FOREIGN KEY (user_id) REFERENCES users (user_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE appointments (
+    appointment_id   BIGINT      NOT NULL AUTO_INCREMENT,
+    customer_id      BIGINT      NOT NULL,
+    provider_id      BIGINT      NOT NULL,
+    appointment_time DATETIME(6) NOT NULL,
+    status           ENUM ('CANCELLED', 'CONFIRMED', 'PENDING') NOT NULL,
+    payment_status   ENUM ('PAID', 'REFUNDED', 'UNPAID') NOT NULL,
+    created_at       DATETIME(6),
+    updated_at       DATETIME(6),
+    PRIMARY KEY (appointment_id),
+    CONSTRAINT uk_provider_appointment_time_active UNIQUE (provider_id, appointment_time, status),
+    CONSTRAINT FK4q5rt20vvnkv7eohwq22l3ayy FOREIGN KEY (customer_id) REFERENCES users (user_id),
+    CONSTRAINT FK9naom2usk1iqyd8d4lm8aegtk FOREIGN KEY (provider_id) REFERENCES providers (provider_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE transactions (
+    transaction_id BIGINT    NOT NULL AUTO_INCREMENT,
+    wallet_id      BIGINT    NOT NULL,
+    appointment_id BIGINT,
+    amount         FLOAT(53) NOT NULL,
+    type           ENUM ('DEDUCTION', 'DEPOSIT', 'INCOME', 'PAYMENT', 'REFUND') NOT NULL,
+    status         ENUM ('PENDING', 'SUCCESS') NOT NULL,
+    created_at     DATETIME(6),
+    PRIMARY KEY (transaction_id),
+    CONSTRAINT FK23bop5lktue0o5q7kr19ti8h FOREIGN KEY (wallet_id) REFERENCES wallets (wallet_id),
+    CONSTRAINT FKg1x27q97od3agkbkl1mvcggtt FOREIGN KEY (appointment_id) REFERENCES appointments (appointment_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE notifications (
+    notification_id BIGINT NOT NULL AUTO_INCREMENT,
+    user_id         BIGINT NOT NULL,
+    message         TEXT   NOT NULL,
+    status          ENUM ('FAILED', 'SENT') NOT NULL,
+    created_at      DATETIME(6),
+    PRIMARY KEY (notification_id),
+    CONSTRAINT FK9y21adhxn0ayjhfocscqox7bh FOREIGN KEY (user_id) REFERENCES users (user_id)
+) ENGINE = InnoDB;
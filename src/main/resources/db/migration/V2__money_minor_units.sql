@@ -0,0 +1,9 @@
+-- Wallet balances and transaction amounts move from DOUBLE to BIGINT minor units (cents)
+
+ALTER TABLE wallets ADD COLUMN balance_minor BIGINT NOT NULL DEFAULT 0;
+UPDATE wallets SET balance_minor = ROUND(balance * 100);
+ALTER TABLE wallets DROP COLUMN balance;
+
+ALTER TABLE transactions ADD COLUMN amount_minor BIGINT NOT NULL DEFAULT 0;
+UPDATE transactions SET amount_minor = ROUND(amount * 100);
+ALTER TABLE transactions DROP COLUMN amount;
@@ -0,0 +1,26 @@
+-- Wallet balances are derived from the transactions ledger (see WalletLedger). Seeds one
+-- snapshot per wallet from the stored balance, then drops the column.
+
+CREATE TABLE wallet_snapshots (
+    snapshot_id   BIGINT      NOT NULL AUTO_INCREMENT,
+    wallet_id     BIGINT      NOT NULL,
+    balance_minor BIGINT      NOT NULL,
+    last_sequence BIGINT      NOT NULL,
+    covered_until DATETIME(6) NOT NULL,
+    created_at    DATETIME(6),
+    PRIMARY KEY (snapshot_id),
+    CONSTRAINT FKcy8kujkwimiqthv328oh4hsxg FOREIGN KEY (wallet_id) REFERENCES wallets (wallet_id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_wallet_snapshots_wallet_covered ON wallet_snapshots (wallet_id, covered_until);
+
+-- every existing entry is already reflected in balance_minor, so the snapshot covers them all
+INSERT INTO wallet_snapshots (wallet_id, balance_minor, last_sequence, covered_until, created_at)
+SELECT w.wallet_id, w.balance_minor, COALESCE(MAX(t.transaction_id), 0), CURRENT_TIMESTAMP(6), CURRENT_TIMESTAMP(6)
+FROM wallets w
+LEFT JOIN transactions t ON t.wallet_id = w.wallet_id
+GROUP BY w.wallet_id, w.balance_minor;
+
+CREATE INDEX idx_transactions_wallet_created ON transactions (wallet_id, created_at);
+
+ALTER TABLE wallets DROP COLUMN balance_minor;
@@ -0,0 +1,16 @@
+-- Optional striping of provider wallets (see WalletLedger). Existing wallets stay unstriped.
+-- To stripe one, set wallets.stripes to n, add wallet_stripes rows for stripes 1..n-1 and
+-- restart the application, which caches stripe counts.
+
+ALTER TABLE wallets ADD COLUMN stripes INTEGER NOT NULL DEFAULT 1;
+ALTER TABLE transactions ADD COLUMN stripe INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE wallet_snapshots ADD COLUMN stripe INTEGER NOT NULL DEFAULT 0;
+
+CREATE TABLE wallet_stripes (
+    stripe_id BIGINT  NOT NULL,
+    wallet_id BIGINT  NOT NULL,
+    stripe    INTEGER NOT NULL,
+    PRIMARY KEY (stripe_id),
+    CONSTRAINT uk_wallet_stripes_wallet_stripe UNIQUE (wallet_id, stripe),
+    CONSTRAINT FKav9uyaognl3098wucvfwpg6o9 FOREIGN KEY (wallet_id) REFERENCES wallets (wallet_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,3 @@
+-- Notifications can wait for email delivery (see EmailDeliveryService)
+
+ALTER TABLE notifications MODIFY status ENUM ('FAILED', 'PENDING', 'SENT') NOT NULL;
@@ -0,0 +1,12 @@
+-- Notifications store a template id and its parameters; the text is rendered on read.
+-- Existing rows keep their message and are backfilled as LEGACY.
+
+ALTER TABLE notifications ADD COLUMN template VARCHAR(32);
+ALTER TABLE notifications ADD COLUMN appointment_id BIGINT;
+ALTER TABLE notifications ADD COLUMN counterpart_name VARCHAR(255);
+ALTER TABLE notifications ADD COLUMN appointment_time DATETIME(6);
+
+UPDATE notifications SET template = 'LEGACY';
+
+ALTER TABLE notifications MODIFY template VARCHAR(32) NOT NULL;
+ALTER TABLE notifications MODIFY message TEXT NULL;
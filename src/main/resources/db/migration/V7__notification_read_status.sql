@@ -0,0 +1,5 @@
+-- Notifications are paged by (created_at, notification_id) per user and can be marked READ
+
+ALTER TABLE notifications MODIFY status ENUM ('FAILED', 'PENDING', 'READ', 'SENT') NOT NULL;
+
+CREATE INDEX idx_notifications_user_created ON notifications (user_id, created_at, notification_id);
@@ -0,0 +1,15 @@
+-- Booking, confirmation and cancellation append an event here; NotificationDispatcher turns
+-- them into notifications off the request path
+
+CREATE TABLE notification_outbox (
+    event_id       BIGINT      NOT NULL,
+    type           ENUM ('APPOINTMENT_BOOKED', 'APPOINTMENT_CANCELLED', 'APPOINTMENT_CONFIRMED') NOT NULL,
+    appointment_id BIGINT      NOT NULL,
+    actor_id       BIGINT,
+    attempts       INTEGER     NOT NULL,
+    available_at   DATETIME(6) NOT NULL,
+    created_at     DATETIME(6) NOT NULL,
+    PRIMARY KEY (event_id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_notification_outbox_available ON notification_outbox (available_at);
@@ -0,0 +1,4 @@
+-- Appointment histories are paged by (appointment_time, appointment_id) per customer and per provider
+
+CREATE INDEX idx_appointments_customer_time ON appointments (customer_id, appointment_time, appointment_id);
+CREATE INDEX idx_appointments_provider_time ON appointments (provider_id, appointment_time, appointment_id);
@@ -0,0 +1,32 @@
+-- Entity ids come from pooled sequences instead of AUTO_INCREMENT so Hibernate can batch
+-- inserts. MySQL has none, so each is a single-row table; with the pooled-lo optimizer next_val
+-- holds the first id of the next block, which starts above the rows already there. The
+-- AUTO_INCREMENT attribute stays on the V1 keys; explicit ids simply bypass it.
+-- Picked by spring.flyway.locations through the {vendor} placeholder.
+
+CREATE TABLE users_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO users_seq (next_val) SELECT COALESCE(MAX(user_id), 0) + 1 FROM users;
+
+CREATE TABLE providers_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO providers_seq (next_val) SELECT COALESCE(MAX(provider_id), 0) + 1 FROM providers;
+
+CREATE TABLE wallets_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO wallets_seq (next_val) SELECT COALESCE(MAX(wallet_id), 0) + 1 FROM wallets;
+
+CREATE TABLE wallet_stripes_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO wallet_stripes_seq (next_val) SELECT COALESCE(MAX(stripe_id), 0) + 1 FROM wallet_stripes;
+
+CREATE TABLE wallet_snapshots_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO wallet_snapshots_seq (next_val) SELECT COALESCE(MAX(snapshot_id), 0) + 1 FROM wallet_snapshots;
+
+CREATE TABLE appointments_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO appointments_seq (next_val) SELECT COALESCE(MAX(appointment_id), 0) + 1 FROM appointments;
+
+CREATE TABLE transactions_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO transactions_seq (next_val) SELECT COALESCE(MAX(transaction_id), 0) + 1 FROM transactions;
+
+CREATE TABLE notifications_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO notifications_seq (next_val) SELECT COALESCE(MAX(notification_id), 0) + 1 FROM notifications;
+
+CREATE TABLE notification_outbox_seq (next_val BIGINT) ENGINE = InnoDB;
+INSERT INTO notification_outbox_seq (next_val) SELECT COALESCE(MAX(event_id), 0) + 1 FROM notification_outbox;
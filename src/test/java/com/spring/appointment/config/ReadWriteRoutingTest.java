@@ -0,0 +1,128 @@
+package com.spring.appointment.config;
+
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.User;
+import com.spring.appointment.records.AuthenticatedUser;
+import com.spring.appointment.repository.UserRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two in-memory databases stand in for primary and replica. They are never synchronised, so
+// which one a read reached shows in what it returns.
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "datasource.replica.url=jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "datasource.replica.sticky-ms=60000"
+})
+@Import({ReadReplicaConfiguration.class, PrimaryReads.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadWriteRoutingTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PrimaryReads primaryReads;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @BeforeEach
+    void setUp() {
+        Flyway.configure()
+                .dataSource(replicaDataSource)
+                .locations("classpath:db/migration", "classpath:db/sequences/h2")
+                .load()
+                .migrate();
+        replica().update("INSERT INTO users (user_id, name, email, password, role, status) " +
+                "VALUES (1000, 'replica', 'replica@example.com', 'secret', 'CUSTOMER', 'ACTIVE')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        userRepository.deleteAllInBatch();
+        replica().update("DELETE FROM users");
+    }
+
+    @Test
+    void readOnlyTransactionsReadTheReplicaAndWritesGoToThePrimary() {
+        inTransaction(false, () -> userRepository.save(user("primary@example.com")));
+
+        assertThat(inTransaction(true, this::emails)).containsExactly("replica@example.com");
+        assertThat(inTransaction(false, this::emails)).containsExactly("primary@example.com");
+    }
+
+    @Test
+    void aUserReadsFromThePrimaryAfterTheirOwnWrite() {
+        signIn(42L);
+        inTransaction(false, () -> userRepository.save(user("primary@example.com")));
+
+        assertThat(inTransaction(true, this::emails)).containsExactly("primary@example.com");
+
+        signIn(43L);
+        assertThat(inTransaction(true, this::emails)).containsExactly("replica@example.com");
+    }
+
+    @Test
+    void primaryReadsBypassTheReplicaInsideAReadOnlyTransaction() {
+        inTransaction(false, () -> userRepository.save(user("primary@example.com")));
+
+        List<String> fromBoth = inTransaction(true, () -> List.of(
+                emails().get(0),
+                primaryReads.read(this::emails).get(0)));
+
+        assertThat(fromBoth).containsExactly("replica@example.com", "primary@example.com");
+    }
+
+    private List<String> emails() {
+        return userRepository.findAll().stream().map(User::getEmail).toList();
+    }
+
+    private <T> T inTransaction(boolean readOnly, Supplier<T> action) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> action.get());
+    }
+
+    private JdbcTemplate replica() {
+        return new JdbcTemplate(replicaDataSource);
+    }
+
+    private static void signIn(long userId) {
+        AuthenticatedUser principal = new AuthenticatedUser(userId, "user" + userId + "@example.com", UserRole.CUSTOMER);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.authorities()));
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .name(email.substring(0, email.indexOf('@')))
+                .email(email)
+                .password("secret")
+                .role(UserRole.CUSTOMER)
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package com.spring.appointment.controller;
+
+import com.spring.appointment.records.DailyAvailability;
+import com.spring.appointment.records.ProviderListResponse;
+import com.spring.appointment.service.AppointmentService;
+import com.spring.appointment.service.LiveEventBus;
+import com.spring.appointment.service.NotificationService;
+import com.spring.appointment.service.ProviderDirectory;
+import com.spring.appointment.service.SlotSearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AppointmentControllerTest {
+
+    private final AppointmentService appointmentService = mock(AppointmentService.class);
+    private final LiveEventBus liveEventBus = mock(LiveEventBus.class);
+    private final ProviderDirectory providerDirectory = mock(ProviderDirectory.class);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new AppointmentController(appointmentService,
+            mock(NotificationService.class), mock(SlotSearchService.class), liveEventBus, providerDirectory)).build();
+
+    @Test
+    void availableSlotsForAnUnknownProviderAreNotFound() throws Exception {
+        when(providerDirectory.findListing(404L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/api/v1/appointments/provider/404/available-slots")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"date\":\"01/06/2099\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/v1/appointments/provider/404/available-slots/range")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"startDate\":\"01/06/2099\",\"endDate\":\"07/06/2099\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/appointments/provider/404/available-slots/stream").param("date", "2099-06-01"))
+                .andExpect(status().isNotFound());
+
+        verifyNoInteractions(appointmentService, liveEventBus);
+    }
+
+    @Test
+    void aRangeIsAnsweredDayByDayForTheRequestedWeekdays() throws Exception {
+        LocalDate monday = LocalDate.of(2099, 6, 1);
+        when(providerDirectory.findListing(7L)).thenReturn(Optional.of(listing()));
+        when(appointmentService.getAvailableSlotsInRange(7L, monday, monday.plusDays(6), Set.of(DayOfWeek.MONDAY)))
+                .thenReturn(List.of(DailyAvailability.of(monday, 0b101)));
+
+        mockMvc.perform(post("/api/v1/appointments/provider/7/available-slots/range")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"startDate\":\"01/06/2099\",\"endDate\":\"07/06/2099\",\"weekdays\":[\"MONDAY\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.providerName").value("Ada"))
+                .andExpect(jsonPath("$.slotDurationMinutes").value(30))
+                .andExpect(jsonPath("$.days.length()").value(1))
+                .andExpect(jsonPath("$.days[0].availableTimes.length()").value(2));
+        verify(appointmentService).getAvailableSlotsInRange(7L, monday, monday.plusDays(6), Set.of(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    void aRangeEndingBeforeItStartsIsABadRequest() throws Exception {
+        LocalDate start = LocalDate.of(2099, 6, 7);
+        when(providerDirectory.findListing(7L)).thenReturn(Optional.of(listing()));
+        when(appointmentService.getAvailableSlotsInRange(7L, start, start.minusDays(6), null))
+                .thenThrow(new IllegalArgumentException("End date must not be before start date"));
+
+        mockMvc.perform(post("/api/v1/appointments/provider/7/available-slots/range")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"startDate\":\"07/06/2099\",\"endDate\":\"01/06/2099\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("End date must not be before start date"));
+    }
+
+    private static ProviderListResponse listing() {
+        return new ProviderListResponse(7L, "Ada", "Dentist", "Bio");
+    }
+}
@@ -0,0 +1,42 @@
+package com.spring.appointment.controller;
+
+import com.spring.appointment.exception.GlobalExceptionHandler;
+import com.spring.appointment.records.AuthenticateRequest;
+import com.spring.appointment.service.AuthenticationService;
+import com.spring.appointment.service.LoginThrottle;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AuthenticationControllerTest {
+
+    private final AuthenticationService authenticationService = mock(AuthenticationService.class);
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new AuthenticationController(authenticationService, mock(LoginThrottle.class)))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+
+    // PasswordHasher turning the login away because its queue is full
+    @Test
+    void aSaturatedHashingPoolAnswersServiceUnavailable() throws Exception {
+        when(authenticationService.authenticate(any(AuthenticateRequest.class)))
+                .thenThrow(new RejectedExecutionException("queue full"));
+
+        mockMvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"ada@example.com\",\"password\":\"secret\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.spring.appointment.controller;
+
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.records.AuthenticatedUser;
+import com.spring.appointment.records.WalletDepositRequest;
+import com.spring.appointment.service.WalletService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class WalletControllerTest {
+
+    private final WalletService walletService = mock(WalletService.class);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new WalletController(walletService)).build();
+    private final TestingAuthenticationToken customer = new TestingAuthenticationToken(
+            new AuthenticatedUser(7L, "ada@example.com", UserRole.CUSTOMER), null);
+
+    @Test
+    void aDepositIsTakenInMinorUnits() throws Exception {
+        when(walletService.deposit(7L, 1250L)).thenReturn(5250L);
+
+        mockMvc.perform(post("/api/v1/wallet/deposit").principal(customer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amountMinor\":1250}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.amountDepositedMinor").value(1250))
+                .andExpect(jsonPath("$.newBalanceMinor").value(5250));
+    }
+
+    // An old client still sending the decimal field must not deposit 0 and be told it succeeded
+    @Test
+    void theOldDecimalAmountFieldIsRejected() throws Exception {
+        mockMvc.perform(post("/api/v1/wallet/deposit").principal(customer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":12.50}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(WalletDepositRequest.AMOUNT_REQUIRED));
+        verify(walletService, never()).deposit(anyLong(), anyLong());
+    }
+}
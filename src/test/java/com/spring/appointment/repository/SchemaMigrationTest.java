@@ -0,0 +1,81 @@
+package com.spring.appointment.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Upgrades a database that ddl-auto=update built before Flyway: the V1 tables with data in them
+// and no schema history, baselined the way application.properties configures it
+class SchemaMigrationTest {
+    private static final String[] LOCATIONS = {"classpath:db/migration", "classpath:db/sequences/h2"};
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:upgrade-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        Flyway.configure().dataSource(dataSource).locations(LOCATIONS).target("1").load().migrate();
+        jdbcTemplate.execute("DROP TABLE \"flyway_schema_history\"");
+
+        jdbcTemplate.update("INSERT INTO users (user_id, name, email, password, role, status) " +
+                "VALUES (7, 'Ann', 'ann@example.com', 'secret', 'CUSTOMER', 'ACTIVE')");
+        jdbcTemplate.update("INSERT INTO wallets (wallet_id, user_id, balance) VALUES (3, 7, 42.5)");
+        jdbcTemplate.update("INSERT INTO transactions (transaction_id, wallet_id, amount, type, status, created_at) " +
+                "VALUES (11, 3, 42.5, 'DEPOSIT', 'SUCCESS', TIMESTAMP '2025-01-01 10:00:00')");
+        jdbcTemplate.update("INSERT INTO notifications (notification_id, user_id, message, status) " +
+                "VALUES (5, 7, 'Appointment booked', 'SENT')");
+    }
+
+    @Test
+    void existingDatabaseIsBaselinedAtV1AndUpgraded() {
+        Flyway.configure().dataSource(dataSource).locations(LOCATIONS)
+                .baselineOnMigrate(true).baselineVersion("1")
+                .load().migrate();
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT amount_minor FROM transactions WHERE transaction_id = 11", Long.class)).isEqualTo(4250L);
+
+        Map<String, Object> snapshot = jdbcTemplate.queryForMap(
+                "SELECT balance_minor, stripe, generation FROM wallet_snapshots WHERE wallet_id = 3");
+        assertThat(snapshot).containsEntry("BALANCE_MINOR", 4250L).containsEntry("STRIPE", 0).containsEntry("GENERATION", 1L);
+        // the seeded snapshot already holds the old entries, so they must not be summed again
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT settled_generation FROM transactions WHERE transaction_id = 11", Long.class)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject("SELECT stripes FROM wallets WHERE wallet_id = 3", Integer.class)).isEqualTo(1);
+
+        Map<String, Object> notification = jdbcTemplate.queryForMap(
+                "SELECT template, message FROM notifications WHERE notification_id = 5");
+        assertThat(notification).containsEntry("TEMPLATE", "LEGACY").containsEntry("MESSAGE", "Appointment booked");
+        jdbcTemplate.update("UPDATE notifications SET read_at = CURRENT_TIMESTAMP WHERE notification_id = 5");
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_outbox", Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = 'IDX_TRANSACTIONS_WALLET_UNSETTLED'",
+                Integer.class)).isPositive();
+    }
+
+    @Test
+    void notificationsMarkedReadKeepTheirReadTimeAndCountAsSent() {
+        Flyway.configure().dataSource(dataSource).locations(LOCATIONS)
+                .baselineOnMigrate(true).baselineVersion("1").target("14")
+                .load().migrate();
+        jdbcTemplate.update("UPDATE notifications SET status = 'READ', created_at = TIMESTAMP '2025-01-02 09:00:00' " +
+                "WHERE notification_id = 5");
+
+        Flyway.configure().dataSource(dataSource).locations(LOCATIONS).load().migrate();
+
+        Map<String, Object> notification = jdbcTemplate.queryForMap(
+                "SELECT status, read_at FROM notifications WHERE notification_id = 5");
+        assertThat(notification).containsEntry("STATUS", "SENT");
+        assertThat(notification.get("READ_AT")).hasToString("2025-01-02 09:00:00.0");
+    }
+}
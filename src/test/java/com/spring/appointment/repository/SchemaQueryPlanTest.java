@@ -0,0 +1,128 @@
+package com.spring.appointment.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Explains the SQL of the hot repository queries against the schema the Flyway migrations build
+// (H2 in MySQL mode) and checks which index each table is read through and which conditions
+// the index range takes. The statements mirror the JPQL in the repositories.
+@DataJpaTest
+class SchemaQueryPlanTest {
+    private static final String TIME = "TIMESTAMP '2026-03-02 10:00:00'";
+    private static final String NEXT_DAY = "TIMESTAMP '2026-03-03 00:00:00'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // AppointmentRepository.findBookedTimesByProviderAndDate / findBookedSlotsByProviders / existsActiveAppointmentAtTime
+    @Test
+    void bookedTimesAreReadFromTheProviderSlotIndex() {
+        String access = accessPath("SELECT a.appointment_time FROM appointments a " +
+                "WHERE a.provider_id = 1 AND a.appointment_time >= " + TIME + " AND a.appointment_time < " + NEXT_DAY +
+                " AND a.status <> 'CANCELLED'", "APPOINTMENTS");
+
+        assertThat(access).startsWith("UK_PROVIDER_APPOINTMENT_TIME_ACTIVE").contains("PROVIDER_ID =", "APPOINTMENT_TIME >=");
+    }
+
+    // AppointmentRepository.findCustomerHistoryBefore
+    @Test
+    void customerHistoryPageIsARangeOnTheCustomerTimeIndex() {
+        String access = accessPath("SELECT a.appointment_id, c.name, pu.name FROM appointments a " +
+                "JOIN users c ON c.user_id = a.customer_id " +
+                "JOIN providers p ON p.provider_id = a.provider_id JOIN users pu ON pu.user_id = p.user_id " +
+                "WHERE c.user_id = 1 AND a.status IN ('PENDING', 'CONFIRMED') " +
+                "AND a.appointment_time <= " + TIME + " AND (a.appointment_time < " + TIME + " OR a.appointment_id < 500) " +
+                "ORDER BY a.appointment_time DESC, a.appointment_id DESC LIMIT 21", "APPOINTMENTS");
+
+        assertThat(access).startsWith("IDX_APPOINTMENTS_CUSTOMER_TIME").contains("APPOINTMENT_TIME <=");
+    }
+
+    // AppointmentRepository.findProviderHistoryAfter
+    @Test
+    void providerHistoryPageIsARangeOnTheProviderTimeIndex() {
+        String access = accessPath("SELECT a.appointment_id, c.name, pu.name FROM appointments a " +
+                "JOIN users c ON c.user_id = a.customer_id " +
+                "JOIN providers p ON p.provider_id = a.provider_id JOIN users pu ON pu.user_id = p.user_id " +
+                "WHERE pu.user_id = 1 AND a.status IN ('PENDING', 'CONFIRMED', 'CANCELLED') " +
+                "AND a.appointment_time >= " + TIME + " AND (a.appointment_time > " + TIME + " OR a.appointment_id > 500) " +
+                "ORDER BY a.appointment_time, a.appointment_id LIMIT 21", "APPOINTMENTS");
+
+        // reached from the provider row; H2 costs the unique slot index and idx_appointments_provider_time
+        // alike since both start (provider_id, appointment_time), so only the range is checked
+        assertThat(access).contains("PROVIDER_ID = P.PROVIDER_ID", "APPOINTMENT_TIME >=");
+    }
+
+    // NotificationRepository.findOlderThan
+    @Test
+    void notificationPageIsARangeOnTheUserCreatedIndex() {
+        String access = accessPath("SELECT n.notification_id FROM notifications n WHERE n.user_id = 1 " +
+                "AND n.created_at <= " + TIME + " AND (n.created_at < " + TIME + " OR n.notification_id < 500) " +
+                "ORDER BY n.created_at DESC, n.notification_id DESC LIMIT 21", "NOTIFICATIONS");
+
+        assertThat(access).startsWith("IDX_NOTIFICATIONS_USER_CREATED").contains("CREATED_AT <=");
+    }
+
+    // NotificationRepository.countUnread / markAllRead
+    @Test
+    void unreadCountUsesTheUserReadIndex() {
+        String access = accessPath("SELECT COUNT(*) FROM notifications n WHERE n.user_id = 1 AND n.read_at IS NULL",
+                "NOTIFICATIONS");
+
+        assertThat(access).startsWith("IDX_NOTIFICATIONS_USER_READ").contains("READ_AT IS NULL");
+    }
+
+    // NotificationRepository.claimPending
+    @Test
+    void pendingClaimUsesTheStatusUserIndex() {
+        String access = accessPath("SELECT n.notification_id FROM notifications n WHERE n.status = 'PENDING' " +
+                "AND (n.claimed_until IS NULL OR n.claimed_until < CURRENT_TIMESTAMP) " +
+                "ORDER BY n.user_id, n.notification_id LIMIT 100", "NOTIFICATIONS");
+
+        assertThat(access).startsWith("IDX_NOTIFICATIONS_STATUS_USER").contains("STATUS =");
+    }
+
+    // TransactionRepository.balanceOf / sumUnsettledByStripe / sumSettledByStripe
+    @Test
+    void ledgerSumsAreARangeOnTheCoveringUnsettledIndex() {
+        String access = accessPath("SELECT t.stripe, " +
+                "SUM(CASE WHEN t.type IN ('DEPOSIT', 'INCOME', 'REFUND') THEN t.amount_minor ELSE -t.amount_minor END) " +
+                "FROM transactions t WHERE t.wallet_id = 1 AND t.settled_generation IS NULL AND t.status = 'SUCCESS' " +
+                "GROUP BY t.stripe", "TRANSACTIONS");
+
+        assertThat(access).startsWith("IDX_TRANSACTIONS_WALLET_UNSETTLED").contains("WALLET_ID =", "SETTLED_GENERATION IS NULL");
+    }
+
+    // TransactionRepository.findWalletIdsWithUnsettledEntries
+    @Test
+    void snapshotWalletsAreARangeOnTheUnsettledWalletIndex() {
+        String access = accessPath("SELECT DISTINCT t.wallet_id FROM transactions t WHERE t.settled_generation IS NULL",
+                "TRANSACTIONS");
+
+        assertThat(access).startsWith("IDX_TRANSACTIONS_UNSETTLED_WALLET").contains("SETTLED_GENERATION IS NULL");
+    }
+
+    // NotificationEventRepository.claimBatch
+    @Test
+    void outboxClaimIsARangeOnAvailableAt() {
+        String access = accessPath("SELECT e.event_id FROM notification_outbox e " +
+                "WHERE e.available_at <= " + TIME + " ORDER BY e.event_id LIMIT 200",
+                "NOTIFICATION_OUTBOX");
+
+        assertThat(access).startsWith("IDX_NOTIFICATION_OUTBOX_AVAILABLE");
+    }
+
+    // Index and conditions the plan reads the table through, e.g. "IDX_X: USER_ID = 1 AND ..."
+    private String accessPath(String sql, String table) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class).replaceAll("\\s+", " ");
+        Matcher access = Pattern.compile("\"PUBLIC\"\\.\"" + table + "\" \"\\w+\" /\\* PUBLIC\\.([^*]+)\\*/").matcher(plan);
+        assertThat(access.find()).as("index access on %s in %s", table, plan).isTrue();
+        return access.group(1).trim();
+    }
+}
@@ -0,0 +1,159 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.AppointmentStatus;
+import com.spring.appointment.enums.AppointmentWindow;
+import com.spring.appointment.enums.TransactionStatus;
+import com.spring.appointment.enums.TransactionType;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.Money;
+import com.spring.appointment.model.Provider;
+import com.spring.appointment.model.Transaction;
+import com.spring.appointment.model.User;
+import com.spring.appointment.model.Wallet;
+import com.spring.appointment.records.AppointmentBookingRequest;
+import com.spring.appointment.records.AppointmentPageResponse;
+import com.spring.appointment.records.AppointmentResponse;
+import com.spring.appointment.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.spring.appointment.service.RecordingStatementInspector"
+})
+@Import({AppointmentService.class, NotificationService.class, NotificationOutbox.class, NotificationUnreadCounter.class,
+        SlotOccupancyIndex.class, BookingLockManager.class, SlotHoldRegistry.class, WalletLedger.class,
+        LiveEventBus.class, PrimaryReads.class, SimpleMeterRegistry.class})
+// bookAppointment commits its own transaction, so the fixture has to be committed as well
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AppointmentHistoryTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private WalletRepository walletRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private NotificationEventRepository notificationEventRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User customer;
+    private User providerUser;
+    private Provider provider;
+
+    @BeforeEach
+    void setUp() {
+        customer = userRepository.save(user("customer@example.com", UserRole.CUSTOMER));
+        Wallet wallet = walletRepository.save(new Wallet(customer));
+        transactionRepository.save(Transaction.builder()
+                .wallet(wallet)
+                .amountMinor(Money.ofMajor(500))
+                .type(TransactionType.DEPOSIT)
+                .status(TransactionStatus.SUCCESS)
+                .build());
+        providerUser = userRepository.save(user("provider@example.com", UserRole.PROVIDER));
+        walletRepository.save(new Wallet(providerUser));
+        provider = providerRepository.save(Provider.builder()
+                .user(providerUser)
+                .serviceType("Dentist")
+                .bio("Bio")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationEventRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+        appointmentRepository.deleteAllInBatch();
+        walletRepository.deleteAllInBatch();
+        providerRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void historyPageIsOneStatement() {
+        LocalDate day = nextWeekday();
+        for (int hour = 9; hour < 12; hour++) {
+            appointmentService.bookAppointment(
+                    customer.getUserId(), provider.getProviderId(), new AppointmentBookingRequest(day.atTime(hour, 0), null));
+        }
+        startRecording();
+
+        AppointmentPageResponse first = appointmentService.getAppointmentsForUser(
+                providerUser.getUserId(), UserRole.PROVIDER, AppointmentWindow.ALL, null, null, 2);
+        AppointmentPageResponse second = appointmentService.getAppointmentsForUser(
+                providerUser.getUserId(), UserRole.PROVIDER, AppointmentWindow.ALL, null, first.nextCursor(), 2);
+
+        assertThat(first.appointments()).extracting(AppointmentResponse::appointmentTime)
+                .containsExactly(day.atTime(11, 0), day.atTime(10, 0));
+        assertThat(second.appointments()).extracting(AppointmentResponse::appointmentTime)
+                .containsExactly(day.atTime(9, 0));
+        assertThat(second.nextCursor()).isNull();
+        // one projection query per page, no entity or association loads
+        assertThat(RecordingStatementInspector.statements()).hasSize(2);
+        assertThat(statistics().getEntityLoadCount()).isZero();
+
+        AppointmentPageResponse upcoming = appointmentService.getAppointmentsForUser(
+                customer.getUserId(), UserRole.CUSTOMER, AppointmentWindow.UPCOMING, AppointmentStatus.PENDING, null, 10);
+        assertThat(upcoming.appointments()).extracting(AppointmentResponse::appointmentTime)
+                .containsExactly(day.atTime(9, 0), day.atTime(10, 0), day.atTime(11, 0));
+        assertThat(upcoming.appointments()).extracting(AppointmentResponse::providerName).containsOnly("provider");
+        assertThat(appointmentService.getAppointmentsForUser(
+                customer.getUserId(), UserRole.CUSTOMER, AppointmentWindow.PAST, null, null, 10).appointments()).isEmpty();
+        assertThat(appointmentService.getAppointmentsForUser(
+                customer.getUserId(), UserRole.CUSTOMER, AppointmentWindow.ALL, AppointmentStatus.CONFIRMED, null, 10).appointments()).isEmpty();
+    }
+
+    private void startRecording() {
+        statistics().clear();
+        RecordingStatementInspector.SQL.clear();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static User user(String email, UserRole role) {
+        return User.builder()
+                .name(email.substring(0, email.indexOf('@')))
+                .email(email)
+                .password("secret")
+                .role(role)
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+
+    private static LocalDate nextWeekday() {
+        LocalDate date = LocalDate.now().plusDays(2);
+        while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            date = date.plusDays(1);
+        }
+        return date;
+    }
+}
@@ -0,0 +1,64 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.User;
+import com.spring.appointment.records.AuthenticateRequest;
+import com.spring.appointment.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// BCryptPasswordEncoder's default cost is 10, matching security.bcrypt.strength below
+@DataJpaTest(properties = {
+        "security.bcrypt.strength=10",
+        "security.hashing.threads=1",
+        "jwt.secret.key=cbcEfPc+W3/Q1NbOa0CcQjCmJzVhdmju2/VrUaZUrgg=",
+        "jwt.expiration.time=60000"
+})
+@Import({AuthenticationService.class, PasswordHasher.class, BCryptPasswordEncoder.class, JwtService.class,
+        WalletLedger.class, PrimaryReads.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuthenticationServiceTest {
+
+    @Autowired
+    private AuthenticationService authenticationService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void aLoginWithAnOldCostFactorStoresAHashWithTheConfiguredOne() {
+        String cheapHash = new BCryptPasswordEncoder(4).encode("secret");
+        User user = userRepository.save(User.builder()
+                .name("ada")
+                .email("ada@example.com")
+                .password(cheapHash)
+                .role(UserRole.CUSTOMER)
+                .status(UserStatus.ACTIVE)
+                .build());
+
+        authenticationService.authenticate(new AuthenticateRequest("ada@example.com", "secret"));
+
+        String stored = userRepository.findById(user.getUserId()).orElseThrow().getPassword();
+        assertThat(stored).isNotEqualTo(cheapHash).startsWith("$2a$10$");
+        assertThat(new BCryptPasswordEncoder().matches("secret", stored)).isTrue();
+
+        // the new hash is left alone on the next login
+        authenticationService.authenticate(new AuthenticateRequest("ada@example.com", "secret"));
+        assertThat(userRepository.findById(user.getUserId()).orElseThrow().getPassword()).isEqualTo(stored);
+    }
+}
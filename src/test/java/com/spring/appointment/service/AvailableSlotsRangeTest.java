@@ -0,0 +1,168 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.Provider;
+import com.spring.appointment.model.User;
+import com.spring.appointment.records.DailyAvailability;
+import com.spring.appointment.repository.AppointmentRepository;
+import com.spring.appointment.repository.ProviderRepository;
+import com.spring.appointment.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({AppointmentService.class, NotificationService.class, NotificationOutbox.class, NotificationUnreadCounter.class,
+        SlotOccupancyIndex.class, BookingLockManager.class, SlotHoldRegistry.class, WalletLedger.class,
+        LiveEventBus.class, PrimaryReads.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AvailableSlotsRangeTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+    private Provider provider;
+
+    @BeforeEach
+    void setUp() {
+        customer = userRepository.save(user("customer@example.com", UserRole.CUSTOMER));
+        provider = providerRepository.save(Provider.builder()
+                .user(userRepository.save(user("provider@example.com", UserRole.PROVIDER)))
+                .serviceType("Dentist")
+                .bio("Bio")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        appointmentRepository.deleteAllInBatch();
+        providerRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void onlyTheRequestedWeekdaysAreListedWithoutBookedOrHeldSlots() {
+        LocalDate monday = LocalDate.now().plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        LocalDate wednesday = monday.plusDays(2);
+        insertAppointment(monday.atTime(10, 0));
+        appointmentService.holdSlot(customer.getUserId(), provider.getProviderId(), wednesday.atTime(11, 0));
+
+        List<DailyAvailability> days = appointmentService.getAvailableSlotsInRange(
+                provider.getProviderId(), monday, monday.plusDays(13), Set.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY));
+
+        assertThat(days).extracting(DailyAvailability::date)
+                .containsExactly(monday, wednesday, monday.plusDays(7), wednesday.plusDays(7));
+        assertThat(days.get(0).availableTimes()).hasSize(SlotOccupancyIndex.SLOTS_PER_DAY - 1)
+                .doesNotContain(LocalTime.of(10, 0));
+        assertThat(days.get(1).availableTimes()).hasSize(SlotOccupancyIndex.SLOTS_PER_DAY - 1)
+                .doesNotContain(LocalTime.of(11, 0));
+        assertThat(days.get(2).availableTimes()).hasSize(SlotOccupancyIndex.SLOTS_PER_DAY);
+    }
+
+    @Test
+    void withoutAFilterEveryWeekdayIsListedAndWeekendsAreSkipped() {
+        LocalDate monday = LocalDate.now().plusDays(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+
+        List<DailyAvailability> days = appointmentService.getAvailableSlotsInRange(
+                provider.getProviderId(), monday, monday.plusDays(13), Set.of());
+
+        assertThat(days).hasSize(10).extracting(day -> day.date().getDayOfWeek())
+                .doesNotContain(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+    }
+
+    // A range reaching into the past or beyond the booking horizon is cut down to what is bookable
+    @Test
+    void theRangeIsClippedToTodayAndTheBookingHorizon() {
+        LocalDate today = LocalDate.now();
+        LocalDate lastBookableDay = today.plusDays(AppointmentService.BOOKING_HORIZON_DAYS);
+
+        List<DailyAvailability> days = appointmentService.getAvailableSlotsInRange(
+                provider.getProviderId(), today.minusDays(10), today.plusDays(365), null);
+
+        assertThat(days).isNotEmpty().allSatisfy(day -> assertThat(day.date()).isBetween(today, lastBookableDay));
+        assertThat(days.get(days.size() - 1).date()).isAfter(lastBookableDay.minusDays(3));
+        assertThat(appointmentService.getAvailableSlotsInRange(
+                provider.getProviderId(), lastBookableDay.plusDays(1), lastBookableDay.plusDays(30), null)).isEmpty();
+        assertThat(appointmentService.getAvailableSlotsInRange(
+                provider.getProviderId(), today.minusDays(30), today.minusDays(1), null)).isEmpty();
+    }
+
+    @Test
+    void anEndDateBeforeTheStartDateIsRejected() {
+        LocalDate start = LocalDate.now().plusDays(5);
+
+        assertThatThrownBy(() -> appointmentService.getAvailableSlotsInRange(
+                provider.getProviderId(), start, start.minusDays(1), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("End date must not be before start date");
+    }
+
+    @Test
+    void slotsThatHaveStartedTodayAreLeftOut() {
+        LocalDateTime before = LocalDateTime.now();
+        LocalDate today = before.toLocalDate();
+
+        List<DailyAvailability> days = appointmentService.getAvailableSlotsInRange(
+                provider.getProviderId(), today, today, null);
+
+        LocalDateTime after = LocalDateTime.now();
+        int freeBefore = SlotOccupancyIndex.futureMask(today, before);
+        int freeAfter = SlotOccupancyIndex.futureMask(today, after);
+        boolean weekend = today.getDayOfWeek().getValue() > 5;
+        if (weekend || (freeBefore == 0 && freeAfter == 0)) {
+            assertThat(days).isEmpty();
+            return;
+        }
+        assertThat(days).hasSize(1);
+        assertThat(days.get(0).availableTimes())
+                .isIn(DailyAvailability.of(today, freeBefore).availableTimes(),
+                        DailyAvailability.of(today, freeAfter).availableTimes())
+                .allSatisfy(time -> assertThat(today.atTime(time)).isAfter(before));
+    }
+
+    private void insertAppointment(LocalDateTime slot) {
+        jdbcTemplate.update(
+                "INSERT INTO appointments (customer_id, provider_id, appointment_time, status, payment_status) " +
+                        "VALUES (?, ?, ?, 'PENDING', 'UNPAID')",
+                customer.getUserId(), provider.getProviderId(), slot);
+    }
+
+    private static User user(String email, UserRole role) {
+        return User.builder()
+                .name(email.substring(0, email.indexOf('@')))
+                .email(email)
+                .password("secret")
+                .role(role)
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+}
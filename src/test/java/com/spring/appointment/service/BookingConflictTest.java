@@ -0,0 +1,149 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.TransactionStatus;
+import com.spring.appointment.enums.TransactionType;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.Money;
+import com.spring.appointment.model.Provider;
+import com.spring.appointment.model.Transaction;
+import com.spring.appointment.model.User;
+import com.spring.appointment.model.Wallet;
+import com.spring.appointment.records.AppointmentBookingRequest;
+import com.spring.appointment.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@DataJpaTest
+@Import({AppointmentService.class, NotificationService.class, NotificationOutbox.class, NotificationUnreadCounter.class,
+        SlotOccupancyIndex.class, BookingLockManager.class, SlotHoldRegistry.class, WalletLedger.class,
+        LiveEventBus.class, PrimaryReads.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingConflictTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+    @MockitoSpyBean
+    private NotificationService notificationService;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private WalletRepository walletRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private NotificationEventRepository notificationEventRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User customer;
+    private Provider provider;
+
+    @BeforeEach
+    void setUp() {
+        customer = userRepository.save(user("customer@example.com", UserRole.CUSTOMER));
+        Wallet wallet = walletRepository.save(new Wallet(customer));
+        transactionRepository.save(Transaction.builder()
+                .wallet(wallet)
+                .amountMinor(Money.ofMajor(500))
+                .type(TransactionType.DEPOSIT)
+                .status(TransactionStatus.SUCCESS)
+                .build());
+        User providerUser = userRepository.save(user("provider@example.com", UserRole.PROVIDER));
+        walletRepository.save(new Wallet(providerUser));
+        provider = providerRepository.save(Provider.builder()
+                .user(providerUser)
+                .serviceType("Dentist")
+                .bio("Bio")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationEventRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+        appointmentRepository.deleteAllInBatch();
+        walletRepository.deleteAllInBatch();
+        providerRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void slotTakenBetweenTheCheckAndTheCommitIsReportedAsTaken() {
+        LocalDateTime slot = nextWeekday().atTime(10, 0);
+        // a competing booking commits after this one found the slot free, before it commits
+        doAnswer(invocation -> {
+            CompletableFuture.runAsync(() -> jdbcTemplate.update(
+                    "INSERT INTO appointments (appointment_id, customer_id, provider_id, appointment_time, status, payment_status) " +
+                            "VALUES (999999, ?, ?, ?, 'PENDING', 'UNPAID')",
+                    customer.getUserId(), provider.getProviderId(), slot)).join();
+            return invocation.callRealMethod();
+        }).when(notificationService).createBookingNotifications(any());
+
+        assertThatThrownBy(() -> appointmentService.bookAppointment(
+                customer.getUserId(), provider.getProviderId(), new AppointmentBookingRequest(slot, null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("This time slot was just taken. Please choose another time.");
+        assertThat(appointmentRepository.findAll()).extracting(appointment -> appointment.getAppointmentId())
+                .isEqualTo(List.of(999999L));
+    }
+
+    @Test
+    void offGridTimesAreRejectedBeforeAnyHoldOrBooking() {
+        LocalDateTime slot = nextWeekday().atTime(10, 0);
+
+        for (LocalDateTime offGrid : List.of(slot.plusSeconds(30), slot.plusNanos(1))) {
+            assertThatThrownBy(() -> appointmentService.holdSlot(customer.getUserId(), provider.getProviderId(), offGrid))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Appointments can only be booked on the hour or half-hour");
+            assertThatThrownBy(() -> appointmentService.bookAppointment(
+                    customer.getUserId(), provider.getProviderId(), new AppointmentBookingRequest(offGrid, null)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Appointments can only be booked on the hour or half-hour");
+        }
+        assertThat(appointmentRepository.count()).isZero();
+    }
+
+    private static User user(String email, UserRole role) {
+        return User.builder()
+                .name(email.substring(0, email.indexOf('@')))
+                .email(email)
+                .password("secret")
+                .role(role)
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+
+    private static LocalDate nextWeekday() {
+        LocalDate date = LocalDate.now().plusDays(2);
+        while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            date = date.plusDays(1);
+        }
+        return date;
+    }
+}
@@ -0,0 +1,84 @@
+package com.spring.appointment.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BookingLockManagerTest {
+    private static final LocalDateTime SLOT = LocalDateTime.of(2030, 1, 7, 10, 30);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void theLockIsReleasedEvenWhenTheActionThrows() {
+        BookingLockManager locks = new BookingLockManager(16, 0, meterRegistry);
+
+        assertThatThrownBy(() -> locks.withSlotLock(1, SLOT, () -> {
+            throw new IllegalStateException("booking failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(locks.withSlotLock(1, SLOT, () -> "booked")).isEqualTo("booked");
+        assertThat(meterRegistry.counter("booking.lock.acquired").count()).isEqualTo(2);
+    }
+
+    @Test
+    void aSecondBookingForTheSlotQueuesBehindTheFirst() throws Exception {
+        BookingLockManager locks = new BookingLockManager(16, 5_000, meterRegistry);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> locks.withSlotLock(1, SLOT, () -> {
+            holding.countDown();
+            await(release);
+            return "first";
+        }));
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> locks.withSlotLock(1, SLOT, () -> "second"));
+        Thread.sleep(50);
+        assertThat(second).isNotDone();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(meterRegistry.counter("booking.lock.contended").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("booking.lock.rejected").count()).isZero();
+    }
+
+    @Test
+    void aBookingThatWaitsTooLongIsRejected() throws Exception {
+        BookingLockManager locks = new BookingLockManager(16, 20, meterRegistry);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> locks.withSlotLock(1, SLOT, () -> {
+            holding.countDown();
+            await(release);
+            return "first";
+        }));
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            assertThatThrownBy(() -> locks.withSlotLock(1, SLOT, () -> "second"))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("being booked by someone else");
+        } finally {
+            release.countDown();
+        }
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(meterRegistry.counter("booking.lock.rejected").count()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.TransactionStatus;
+import com.spring.appointment.enums.TransactionType;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.Appointment;
+import com.spring.appointment.model.Money;
+import com.spring.appointment.model.Provider;
+import com.spring.appointment.model.Transaction;
+import com.spring.appointment.model.User;
+import com.spring.appointment.model.Wallet;
+import com.spring.appointment.records.AppointmentBookingRequest;
+import com.spring.appointment.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.spring.appointment.service.RecordingStatementInspector"
+})
+@Import({AppointmentService.class, NotificationService.class, NotificationOutbox.class, NotificationUnreadCounter.class,
+        SlotOccupancyIndex.class, BookingLockManager.class, SlotHoldRegistry.class, WalletLedger.class,
+        LiveEventBus.class, PrimaryReads.class, SimpleMeterRegistry.class})
+// bookAppointment commits its own transaction, so the fixture has to be committed as well
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookingStatementCountTest {
+
+    @Autowired
+    private AppointmentService appointmentService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private WalletLedger walletLedger;
+    @Autowired
+    private WalletRepository walletRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+    @Autowired
+    private NotificationEventRepository notificationEventRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User customer;
+    private User providerUser;
+    private Provider provider;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        customer = userRepository.save(user("customer@example.com", UserRole.CUSTOMER));
+        wallet = walletRepository.save(new Wallet(customer));
+        transactionRepository.save(Transaction.builder()
+                .wallet(wallet)
+                .amountMinor(Money.ofMajor(500))
+                .type(TransactionType.DEPOSIT)
+                .status(TransactionStatus.SUCCESS)
+                .build());
+
+        providerUser = userRepository.save(user("provider@example.com", UserRole.PROVIDER));
+        walletRepository.save(new Wallet(providerUser));
+        provider = providerRepository.save(Provider.builder()
+                .user(providerUser)
+                .serviceType("Dentist")
+                .bio("Bio")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationEventRepository.deleteAllInBatch();
+        notificationRepository.deleteAllInBatch();
+        transactionRepository.deleteAllInBatch();
+        appointmentRepository.deleteAllInBatch();
+        walletRepository.deleteAllInBatch();
+        providerRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void bookingUsesOneLookupQueryPlusItsInserts() {
+        LocalDateTime slot = nextWeekday().atTime(10, 0);
+        // warm the slot index so only the booking transaction is measured
+        appointmentService.getAvailableSlotMask(provider.getProviderId(), slot.toLocalDate());
+        startRecording();
+
+        Appointment appointment = appointmentService.bookAppointment(
+                customer.getUserId(), provider.getProviderId(), new AppointmentBookingRequest(slot, null));
+
+        assertThat(appointment.getAppointmentId()).isNotNull();
+        // booking context SELECT (balance included), appointment INSERT, notification outbox INSERT
+        assertThat(RecordingStatementInspector.statements()).hasSize(3);
+        assertThat(statistics().getEntityInsertCount()).isEqualTo(2);
+    }
+
+    @Test
+    void confirmationBatchesItsWrites() {
+        LocalDateTime slot = nextWeekday().atTime(11, 0);
+        Appointment appointment = appointmentService.bookAppointment(
+                customer.getUserId(), provider.getProviderId(), new AppointmentBookingRequest(slot, null));
+        // warm the owner -> wallet mapping so only the confirmation is measured
+        walletLedger.walletIdOf(customer.getUserId());
+        walletLedger.walletIdOf(providerUser.getUserId());
+        startRecording();
+
+        appointmentService.confirmAppointment(appointment.getAppointmentId(), providerUser.getUserId());
+
+        // two ledger entries, one outbox event and the appointment update
+        assertThat(statistics().getEntityInsertCount()).isEqualTo(3);
+        assertThat(statistics().getEntityUpdateCount()).isEqualTo(1);
+        // each table's rows go out as one batch
+        assertThat(RecordingStatementInspector.writes()).containsExactlyInAnyOrder(
+                "insert into transactions", "insert into notification_outbox", "update appointments");
+    }
+
+    private void startRecording() {
+        statistics().clear();
+        RecordingStatementInspector.SQL.clear();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static User user(String email, UserRole role) {
+        return User.builder()
+                .name(email.substring(0, email.indexOf('@')))
+                .email(email)
+                .password("secret")
+                .role(role)
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+
+    private static LocalDate nextWeekday() {
+        LocalDate date = LocalDate.now().plusDays(2);
+        while (date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            date = date.plusDays(1);
+        }
+        return date;
+    }
+}
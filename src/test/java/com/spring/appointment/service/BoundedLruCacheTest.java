@@ -0,0 +1,59 @@
+package com.spring.appointment.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedLruCacheTest {
+
+    // a single segment, so the eviction order is the whole cache's
+    @Test
+    void aFullCacheDropsItsLeastRecentlyUsedEntry() {
+        BoundedLruCache<Long, String> cache = new BoundedLruCache<>(1);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(2L)).isEqualTo("two");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void readsKeepAnEntryRecentlyUsed() {
+        BoundedLruCache<Long, String> cache = new BoundedLruCache<>(1);
+        cache.put(1L, "one");
+        cache.put(1L, "uno");
+
+        assertThat(cache.get(1L)).isEqualTo("uno");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void staysWithinItsBoundUnderManyKeys() {
+        BoundedLruCache<Long, Long> cache = new BoundedLruCache<>(100);
+        for (long key = 0; key < 10_000; key++) {
+            cache.put(key, key);
+        }
+
+        // each of the 16 segments holds up to ceil(100 / 16)
+        assertThat(cache.size()).isLessThanOrEqualTo(16 * 7);
+        assertThat(cache.get(9_999L)).isEqualTo(9_999L);
+    }
+
+    @Test
+    void conditionalRemoveKeepsANewerValue() {
+        BoundedLruCache<Long, String> cache = new BoundedLruCache<>(4);
+        cache.put(1L, "new");
+
+        cache.remove(1L, "old");
+        assertThat(cache.get(1L)).isEqualTo("new");
+        cache.remove(1L);
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void needsRoomForAnEntry() {
+        assertThatThrownBy(() -> new BoundedLruCache<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,173 @@
+package com.spring.appointment.service;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.spring.appointment.enums.NotificationStatus;
+import com.spring.appointment.enums.NotificationTemplate;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.Notification;
+import com.spring.appointment.model.User;
+import com.spring.appointment.repository.NotificationRepository;
+import com.spring.appointment.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.mail.MailSenderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@DataJpaTest(properties = {
+        "notification.email.enabled=true",
+        "notification.email.concurrency=2",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025"
+})
+@ImportAutoConfiguration(MailSenderAutoConfiguration.class)
+@Import({EmailDeliveryService.class, SimpleMeterRegistry.class})
+// the service runs its own transaction, so the fixture has to be committed as well
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailDeliveryServiceTest {
+    private static final LocalDateTime APPOINTMENT_TIME = LocalDateTime.of(2026, 3, 2, 10, 30);
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @Autowired
+    private EmailDeliveryService emailDeliveryService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @MockitoSpyBean
+    private JavaMailSender mailSender;
+
+    @AfterEach
+    void tearDown() {
+        notificationRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void sendsOneDigestPerRecipientAndMarksThemSent() throws Exception {
+        User alice = userRepository.save(user("alice@example.com"));
+        User bob = userRepository.save(user("bob@example.com"));
+        notificationRepository.saveAll(List.of(
+                pending(alice, NotificationTemplate.BOOKED_CUSTOMER, "Dr Who"),
+                pending(alice, NotificationTemplate.CONFIRMED_CUSTOMER, "Dr Who"),
+                pending(bob, NotificationTemplate.BOOKED_PROVIDER, "alice")));
+
+        emailDeliveryService.deliverPending();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(2);
+        assertThat(greenMail.getReceivedMessagesForDomain("alice@example.com")[0].getContent().toString())
+                .contains("Appointment booked with Dr Who on Mar 02, 2026 10:30 AM. Status: PENDING",
+                        "Your appointment with Dr Who on Mar 02, 2026 10:30 AM has been CONFIRMED");
+        assertThat(notificationRepository.findAll())
+                .extracting(Notification::getStatus)
+                .containsOnly(NotificationStatus.SENT);
+    }
+
+    @Test
+    // the service backs off after this, which would hold up the other test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void leavesNotificationsPendingWhileTheServerIsDown() {
+        User alice = userRepository.save(user("alice@example.com"));
+        notificationRepository.save(pending(alice, NotificationTemplate.BOOKED_CUSTOMER, "Dr Who"));
+        greenMail.stop();
+
+        emailDeliveryService.deliverPending();
+
+        assertThat(notificationRepository.findAll())
+                .extracting(Notification::getStatus, Notification::getClaimedUntil)
+                .containsOnly(tuple(NotificationStatus.PENDING, null));
+    }
+
+    // SMTP is slow; the claimed rows must not stay locked, and a row read meanwhile keeps its read time
+    @Test
+    void sendsWithoutHoldingTheClaimedRowsLocked() throws Exception {
+        User alice = userRepository.save(user("alice@example.com"));
+        notificationRepository.save(pending(alice, NotificationTemplate.BOOKED_CUSTOMER, "Dr Who"));
+        doAnswer(invocation -> {
+            int marked = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status ->
+                    notificationRepository.markAllRead(alice.getUserId(), LocalDateTime.now()))).get(5, TimeUnit.SECONDS);
+            assertThat(marked).isEqualTo(1);
+            return invocation.callRealMethod();
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        emailDeliveryService.deliverPending();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(notificationRepository.findAll())
+                .allSatisfy(notification -> {
+                    assertThat(notification.getStatus()).isEqualTo(NotificationStatus.SENT);
+                    assertThat(notification.getReadAt()).isNotNull();
+                });
+    }
+
+    @Test
+    void skipsRowsClaimedByAnotherPollerUntilTheLeaseLapses() {
+        User alice = userRepository.save(user("alice@example.com"));
+        Notification claimed = pending(alice, NotificationTemplate.BOOKED_CUSTOMER, "Dr Who");
+        claimed.setClaimedUntil(LocalDateTime.now().plusMinutes(5));
+        notificationRepository.save(claimed);
+
+        emailDeliveryService.deliverPending();
+        assertThat(greenMail.getReceivedMessages()).isEmpty();
+
+        // the other poller died without recording an outcome
+        transactionTemplate.executeWithoutResult(status ->
+                notificationRepository.claim(List.of(claimed.getNotificationId()), LocalDateTime.now().minusSeconds(1)));
+        emailDeliveryService.deliverPending();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(notificationRepository.findAll())
+                .extracting(Notification::getStatus)
+                .containsOnly(NotificationStatus.SENT);
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .name(email.substring(0, email.indexOf('@')))
+                .email(email)
+                .password("secret")
+                .role(UserRole.CUSTOMER)
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+
+    private static Notification pending(User user, NotificationTemplate template, String counterpartName) {
+        Notification notification = new Notification();
+        notification.setUser(user);
+        notification.setTemplate(template);
+        notification.setCounterpartName(counterpartName);
+        notification.setAppointmentTime(APPOINTMENT_TIME);
+        notification.setStatus(NotificationStatus.PENDING);
+        return notification;
+    }
+}
@@ -0,0 +1,97 @@
+package com.spring.appointment.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtServiceTest {
+    private static final String SECRET = "cbcEfPc+W3/Q1NbOa0CcQjCmJzVhdmju2/VrUaZUrgg=";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void onlyTheFirstRequestWithATokenChecksTheSignature() {
+        JwtService jwtService = new JwtService(SECRET, 60_000, 10, meterRegistry);
+        String token = jwtService.generateToken(Map.of("userId", 7L), user("ada@example.com"));
+
+        assertThat(jwtService.extractUserName(token)).isEqualTo("ada@example.com");
+        assertThat(jwtService.extractUserId(token)).isEqualTo(7L);
+        assertThat(jwtService.isTokenValid(token, user("ada@example.com"))).isTrue();
+        assertThat(jwtService.isTokenValid(token, user("grace@example.com"))).isFalse();
+
+        assertThat(meterRegistry.counter("jwt.cache.misses").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("jwt.cache.hits").count()).isEqualTo(3);
+    }
+
+    // The cache is keyed by the token's digest, so a token differing from a cached one in any
+    // character is checked, and rejected, on its own
+    @Test
+    void aTamperedTokenNeverHitsTheCache() {
+        JwtService jwtService = new JwtService(SECRET, 60_000, 10, meterRegistry);
+        String token = jwtService.generateToken(Map.of(), user("ada@example.com"));
+        jwtService.verify(token);
+
+        // first character of the signature, all six bits of which are significant
+        int signature = token.lastIndexOf('.') + 1;
+        String tampered = token.substring(0, signature) + (token.charAt(signature) == 'A' ? 'B' : 'A')
+                + token.substring(signature + 1);
+
+        assertThat(jwtService.verify(tampered)).isNull();
+        assertThat(jwtService.verify("not-a-token")).isNull();
+        assertThat(meterRegistry.counter("jwt.cache.hits").count()).isZero();
+    }
+
+    @Test
+    void aCachedTokenStopsVerifyingOnceItExpires() throws Exception {
+        JwtService jwtService = new JwtService(SECRET, 1_000, 10, meterRegistry);
+        String token = jwtService.generateToken(Map.of(), user("ada@example.com"));
+        assertThat(jwtService.verify(token)).isNotNull();
+
+        Thread.sleep(1_100);
+
+        assertThat(jwtService.verify(token)).isNull();
+        assertThat(jwtService.verify(token)).isNull();
+    }
+
+    @Test
+    void aFullCacheMakesRoomForNewTokens() {
+        JwtService jwtService = new JwtService(SECRET, 60_000, 2, meterRegistry);
+        String first = jwtService.generateToken(Map.of(), user("ada@example.com"));
+        String second = jwtService.generateToken(Map.of(), user("grace@example.com"));
+        String third = jwtService.generateToken(Map.of(), user("alan@example.com"));
+        jwtService.verify(first);
+        jwtService.verify(second);
+
+        // live tokens fill the cache; the new one is cached all the same
+        assertThat(jwtService.verify(third)).isNotNull();
+        assertThat(jwtService.verify(third)).isNotNull();
+
+        assertThat(meterRegistry.counter("jwt.cache.misses").count()).isEqualTo(3);
+        assertThat(meterRegistry.counter("jwt.cache.hits").count()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredEntriesMakeRoomInAFullCache() throws Exception {
+        JwtService shortLived = new JwtService(SECRET, 1_000, 1, meterRegistry);
+        String expiring = shortLived.generateToken(Map.of(), user("ada@example.com"));
+        shortLived.verify(expiring);
+        Thread.sleep(1_100);
+
+        // signed by the same key, so the same service verifies it
+        String fresh = new JwtService(SECRET, 60_000, 1, new SimpleMeterRegistry())
+                .generateToken(Map.of(), user("grace@example.com"));
+        shortLived.verify(fresh);
+        shortLived.verify(fresh);
+
+        assertThat(meterRegistry.counter("jwt.cache.hits").count()).isEqualTo(1);
+    }
+
+    private static UserDetails user(String email) {
+        return User.withUsername(email).password("secret").authorities(new String[0]).build();
+    }
+}
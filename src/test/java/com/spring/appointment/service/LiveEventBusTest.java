@@ -0,0 +1,125 @@
+package com.spring.appointment.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class LiveEventBusTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void eventsPublishedWhileTheSnapshotIsReadAreDelivered() throws Exception {
+        LiveEventBus bus = new LiveEventBus(meterRegistry, 64, 60_000, 60_000);
+        MockHttpServletResponse response = stream(bus, () -> {
+            // commits after the subscriber registered but before the snapshot was read
+            bus.publishToUser(7, "notification", () -> Map.of("id", 1));
+            return Map.of("count", 1);
+        });
+
+        String body = awaitBody(response, content -> content.contains("event:unread-count"));
+        assertThat(body.indexOf("event:notification")).isNotNegative().isLessThan(body.indexOf("event:unread-count"));
+    }
+
+    @Test
+    void anOverflowingQueueIsReplacedByAResync() throws Exception {
+        LiveEventBus bus = new LiveEventBus(meterRegistry, 2, 60_000, 60_000);
+        // the worker starts after the snapshot, so these pile up in the queue
+        MockHttpServletResponse response = stream(bus, () -> {
+            for (int i = 0; i < 3; i++) {
+                bus.publishToUser(7, "notification", () -> Map.of("id", 1));
+            }
+            return Map.of("count", 3);
+        });
+
+        String body = awaitBody(response, content -> content.contains("event:unread-count"));
+        assertThat(body).contains("event:resync").doesNotContain("event:notification");
+        assertThat(meterRegistry.counter("live.events.dropped").count()).isEqualTo(2);
+    }
+
+    @Test
+    void idleStreamsGetAHeartbeat() throws Exception {
+        LiveEventBus bus = new LiveEventBus(meterRegistry, 64, 50, 60_000);
+        MockHttpServletResponse response = stream(bus, () -> Map.of("count", 0));
+
+        assertThat(awaitBody(response, content -> content.contains(":heartbeat"))).contains("event:unread-count");
+    }
+
+    @Test
+    void closedStreamsLeaveTheirTopic() throws Exception {
+        LiveEventBus bus = new LiveEventBus(meterRegistry, 64, 60_000, 60_000);
+        MockHttpServletResponse response = stream(bus, () -> Map.of("count", 0));
+        awaitBody(response, content -> content.contains("event:unread-count"));
+        assertThat(meterRegistry.get("live.subscribers").gauge().value()).isEqualTo(1);
+
+        bus.closeAll();
+
+        assertThat(meterRegistry.get("live.subscribers").gauge().value()).isZero();
+        bus.publishToUser(7, "notification", () -> {
+            throw new AssertionError("no subscriber is left to build the payload for");
+        });
+    }
+
+    @Test
+    void aFailedSnapshotDoesNotLeaveASubscriber() {
+        LiveEventBus bus = new LiveEventBus(meterRegistry, 64, 60_000, 60_000);
+
+        assertThatThrownBy(() -> bus.subscribeUser(7, "unread-count", () -> {
+            throw new IllegalArgumentException("User not found");
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(meterRegistry.get("live.subscribers").gauge().value()).isZero();
+    }
+
+    private static MockHttpServletResponse stream(LiveEventBus bus, Supplier<?> initialData) throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StreamController(bus, initialData)).build();
+        return mockMvc.perform(get("/stream/7"))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private static String awaitBody(MockHttpServletResponse response, Predicate<String> done) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String body = response.getContentAsString();
+        while (!done.test(body)) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("stream never got there: " + body);
+            }
+            Thread.sleep(10);
+            body = response.getContentAsString();
+        }
+        return body;
+    }
+
+    @RestController
+    static class StreamController {
+        private final LiveEventBus bus;
+        private final Supplier<?> initialData;
+
+        StreamController(LiveEventBus bus, Supplier<?> initialData) {
+            this.bus = bus;
+            this.initialData = initialData;
+        }
+
+        @GetMapping("/stream/{userId}")
+        SseEmitter stream(@PathVariable long userId) {
+            return bus.subscribeUser(userId, "unread-count", initialData);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.controller.AuthenticationController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class LoginThrottleTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void anEmailOutOfAttemptsGetsTheSecondsUntilItsNextOne() {
+        LoginThrottle throttle = new LoginThrottle(meterRegistry, true, 1024, 20, 3, 1, 60);
+
+        assertThat(throttle.acquire("10.0.0.1", "ada@example.com")).isZero();
+        // the same account from another address, with different casing
+        assertThat(throttle.acquire("10.0.0.2", "ADA@example.com")).isEqualTo(60);
+        assertThat(throttle.acquire("10.0.0.1", "grace@example.com")).isZero();
+        assertThat(meterRegistry.counter("auth.throttle.rejected", "key", "email").count()).isEqualTo(1);
+    }
+
+    @Test
+    void anAddressOutOfAttemptsIsRejectedWhateverTheEmail() {
+        LoginThrottle throttle = new LoginThrottle(meterRegistry, true, 1024, 2, 3, 5, 60);
+
+        assertThat(throttle.acquire("10.0.0.1", "ada@example.com")).isZero();
+        assertThat(throttle.acquire("10.0.0.1", "grace@example.com")).isZero();
+        assertThat(throttle.acquire("10.0.0.1", "alan@example.com")).isEqualTo(3);
+        assertThat(throttle.acquire("10.0.0.2", "alan@example.com")).isZero();
+        assertThat(meterRegistry.counter("auth.throttle.rejected", "key", "address").count()).isEqualTo(1);
+    }
+
+    @Test
+    void requestsWithoutAnEmailOnlyUseTheAddressBucket() {
+        LoginThrottle throttle = new LoginThrottle(meterRegistry, true, 1024, 1, 3, 1, 60);
+
+        assertThat(throttle.acquire("10.0.0.1", null)).isZero();
+        assertThat(throttle.acquire("10.0.0.1", null)).isEqualTo(3);
+    }
+
+    @Test
+    void aDisabledThrottleLetsEverythingThrough() {
+        LoginThrottle throttle = new LoginThrottle(meterRegistry, false, 1024, 1, 3, 1, 60);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(throttle.acquire("10.0.0.1", "ada@example.com")).isZero();
+        }
+    }
+
+    @Test
+    void aThrottledLoginIsA429WithRetryAfterAndNeverReachesTheHasher() throws Exception {
+        AuthenticationService authenticationService = mock(AuthenticationService.class);
+        LoginThrottle throttle = new LoginThrottle(meterRegistry, true, 1024, 20, 3, 1, 60);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+                new AuthenticationController(authenticationService, throttle)).build();
+        throttle.acquire("127.0.0.1", "ada@example.com");
+
+        mockMvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"ada@example.com\",\"password\":\"secret\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "60"));
+        verify(authenticationService, never()).authenticate(any());
+    }
+}
@@ -0,0 +1,81 @@
+package com.spring.appointment.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongIntHashMapTest {
+
+    @Test
+    void putOverwritesAndGetFallsBackToTheDefault() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        map.put(42, 1);
+        map.put(42, 2);
+
+        assertThat(map.get(42, -1)).isEqualTo(2);
+        assertThat(map.get(43, -1)).isEqualTo(-1);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void keyZeroIsReserved() {
+        assertThatThrownBy(() -> new LongIntHashMap(4).put(0, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void growsPastItsExpectedSize() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 1; i <= 10_000; i++) {
+            map.put(i * 31L, i);
+        }
+
+        assertThat(map.size()).isEqualTo(10_000);
+        for (int i = 1; i <= 10_000; i++) {
+            assertThat(map.get(i * 31L, -1)).isEqualTo(i);
+        }
+    }
+
+    // Removal shifts later entries back, so every probe chain must still reach its key
+    @Test
+    void agreesWithAHashMapAcrossRandomPutsAndRemoves() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 50_000; i++) {
+            long key = 1 + random.nextInt(512);
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 512; key++) {
+            assertThat(map.get(key, -1)).isEqualTo(expected.getOrDefault(key, -1));
+        }
+    }
+
+    @Test
+    void retainIfDropsRejectedKeysAndShrinks() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        for (int i = 1; i <= 1_000; i++) {
+            map.put(i, i);
+        }
+
+        map.retainIf(key -> key % 100 == 0);
+
+        assertThat(map.size()).isEqualTo(10);
+        assertThat(map.get(500, -1)).isEqualTo(500);
+        assertThat(map.get(501, -1)).isEqualTo(-1);
+        map.put(501, 1);
+        assertThat(map.get(501, -1)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,92 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.NotificationEventType;
+import com.spring.appointment.model.NotificationEvent;
+import com.spring.appointment.repository.NotificationEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DataJpaTest(properties = {
+        "notification.dispatcher.enabled=false",
+        "notification.dispatcher.max-attempts=3"
+})
+@Import({NotificationDispatcher.class, NotificationService.class, NotificationOutbox.class, NotificationUnreadCounter.class,
+        LiveEventBus.class, PrimaryReads.class, SimpleMeterRegistry.class})
+// the dispatcher runs its own transactions, so the fixture has to be committed as well
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationDispatcherTest {
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+    @Autowired
+    private NotificationEventRepository notificationEventRepository;
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        notificationEventRepository.deleteAllInBatch();
+        jdbcTemplate.update("DELETE FROM notification_outbox_dead");
+    }
+
+    @Test
+    void aFailingEventBacksOffExponentiallyAndIsDeadLetteredAfterMaxAttempts() {
+        // its appointment does not exist, so every attempt fails
+        long eventId = notificationEventRepository.save(
+                new NotificationEvent(NotificationEventType.APPOINTMENT_BOOKED, 424242L, null)).getEventId();
+
+        assertThat(notificationDispatcher.dispatchBatch()).isEqualTo(1);
+        assertNextAttemptIn(eventId, 1, Duration.ofSeconds(1));
+        // not due yet
+        assertThat(notificationDispatcher.dispatchBatch()).isZero();
+
+        makeDue(eventId);
+        assertThat(notificationDispatcher.dispatchBatch()).isEqualTo(1);
+        assertNextAttemptIn(eventId, 2, Duration.ofSeconds(2));
+
+        makeDue(eventId);
+        assertThat(notificationDispatcher.dispatchBatch()).isEqualTo(1);
+
+        assertThat(notificationEventRepository.count()).isZero();
+        Map<String, Object> dead = jdbcTemplate.queryForMap(
+                "SELECT type, appointment_id, attempts, last_error FROM notification_outbox_dead WHERE event_id = ?", eventId);
+        assertThat(dead).containsEntry("TYPE", "APPOINTMENT_BOOKED")
+                .containsEntry("APPOINTMENT_ID", 424242L)
+                .containsEntry("ATTEMPTS", 3)
+                .containsEntry("LAST_ERROR", "appointment not found");
+        assertThat(meterRegistry.counter("notification.outbox.retried").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("notification.outbox.abandoned").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("notification.outbox.dispatched").count()).isZero();
+        // nothing left for the next poll to scan
+        makeDue(eventId);
+        assertThat(notificationDispatcher.dispatchBatch()).isZero();
+    }
+
+    private void assertNextAttemptIn(long eventId, int attempts, Duration backoff) {
+        NotificationEvent event = notificationEventRepository.findById(eventId).orElseThrow();
+        assertThat(event.getAttempts()).isEqualTo(attempts);
+        assertThat(event.getAvailableAt()).isCloseTo(LocalDateTime.now().plus(backoff), within(Duration.ofMillis(500)));
+    }
+
+    private void makeDue(long eventId) {
+        jdbcTemplate.update("UPDATE notification_outbox SET available_at = ? WHERE event_id = ?",
+                LocalDateTime.now().minusSeconds(1), eventId);
+    }
+}
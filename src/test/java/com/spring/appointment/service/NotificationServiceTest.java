@@ -0,0 +1,170 @@
+package com.spring.appointment.service;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.NotificationStatus;
+import com.spring.appointment.enums.NotificationTemplate;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.Notification;
+import com.spring.appointment.model.User;
+import com.spring.appointment.records.NotificationPageResponse;
+import com.spring.appointment.records.NotificationResponse;
+import com.spring.appointment.repository.NotificationRepository;
+import com.spring.appointment.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.mail.MailSenderAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "notification.email.enabled=true",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025"
+})
+@ImportAutoConfiguration(MailSenderAutoConfiguration.class)
+@Import({NotificationService.class, NotificationOutbox.class, NotificationUnreadCounter.class, LiveEventBus.class,
+        EmailDeliveryService.class, PrimaryReads.class, SimpleMeterRegistry.class})
+// unread counts are adjusted after commit, so the fixture has to be committed as well
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationServiceTest {
+    private static final LocalDateTime APPOINTMENT_TIME = LocalDateTime.of(2026, 3, 2, 10, 30);
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @Autowired
+    private NotificationService notificationService;
+    @Autowired
+    private EmailDeliveryService emailDeliveryService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        alice = userRepository.save(user("alice@example.com"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void pagesRunNewestFirstAndFollowTheCursorToTheEnd() {
+        List<Notification> saved = save(alice, 5, NotificationStatus.SENT);
+
+        List<Long> seen = new ArrayList<>();
+        NotificationPageResponse page = notificationService.getUserNotifications(alice.getUserId(), null, 2);
+        int pages = 1;
+        seen.addAll(page.notifications().stream().map(NotificationResponse::notificationId).toList());
+        while (page.nextCursor() != null) {
+            page = notificationService.getUserNotifications(alice.getUserId(), page.nextCursor(), 2);
+            pages++;
+            seen.addAll(page.notifications().stream().map(NotificationResponse::notificationId).toList());
+        }
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(seen).containsExactlyElementsOf(saved.reversed().stream().map(Notification::getNotificationId).toList());
+        assertThat(page.unreadCount()).isEqualTo(5);
+        assertThatThrownBy(() -> notificationService.getUserNotifications(alice.getUserId(), "not-a-cursor", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> notificationService.getUserNotifications(alice.getUserId(), null, NotificationService.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void markReadSetsTheReadTimeAndLeavesTheDeliveryStatus() {
+        List<Notification> saved = new ArrayList<>();
+        saved.addAll(save(alice, 1, NotificationStatus.SENT));
+        saved.addAll(save(alice, 1, NotificationStatus.FAILED));
+        saved.addAll(save(alice, 1, NotificationStatus.PENDING));
+        User bob = userRepository.save(user("bob@example.com"));
+        save(bob, 1, NotificationStatus.SENT);
+        assertThat(notificationService.getUnreadCount(alice.getUserId())).isEqualTo(3);
+
+        assertThat(notificationService.markRead(alice.getUserId(), List.of(saved.get(0).getNotificationId()))).isEqualTo(1);
+        // already read
+        assertThat(notificationService.markRead(alice.getUserId(), List.of(saved.get(0).getNotificationId()))).isZero();
+        assertThat(notificationService.getUnreadCount(alice.getUserId())).isEqualTo(2);
+
+        assertThat(notificationService.markRead(alice.getUserId(), null)).isEqualTo(2);
+        assertThat(notificationService.getUnreadCount(alice.getUserId())).isZero();
+        assertThat(notificationService.getUnreadCount(bob.getUserId())).isEqualTo(1);
+
+        assertThat(notificationService.getUserNotifications(alice.getUserId(), null, 10).notifications())
+                .allSatisfy(notification -> assertThat(notification.readAt()).isNotNull())
+                .extracting(NotificationResponse::status)
+                .containsExactly(NotificationStatus.PENDING, NotificationStatus.FAILED, NotificationStatus.SENT);
+    }
+
+    @Test
+    void aNotificationReadBeforeItIsMailedIsStillMailed() {
+        save(alice, 1, NotificationStatus.PENDING);
+
+        // the user opens the bell before the email poller gets to the row
+        assertThat(notificationService.markRead(alice.getUserId(), null)).isEqualTo(1);
+        emailDeliveryService.deliverPending();
+
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        assertThat(notificationRepository.findAll()).singleElement().satisfies(notification -> {
+            assertThat(notification.getStatus()).isEqualTo(NotificationStatus.SENT);
+            assertThat(notification.getReadAt()).isNotNull();
+        });
+    }
+
+    // Each in its own transaction, so every row gets a later created_at than the one before
+    private List<Notification> save(User user, int count, NotificationStatus status) {
+        List<Notification> saved = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Notification notification = new Notification();
+            notification.setUser(user);
+            notification.setTemplate(NotificationTemplate.BOOKED_CUSTOMER);
+            notification.setCounterpartName("Dr Who");
+            notification.setAppointmentTime(APPOINTMENT_TIME);
+            notification.setStatus(status);
+            saved.add(transactionTemplate.execute(tx -> {
+                Notification inserted = notificationRepository.save(notification);
+                notificationService.notificationsSaved(List.of(inserted));
+                return inserted;
+            }));
+        }
+        return saved;
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .name(email.substring(0, email.indexOf('@')))
+                .email(email)
+                .password("secret")
+                .role(UserRole.CUSTOMER)
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.spring.appointment.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PasswordHasherTest {
+
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHasher passwordHasher;
+
+    @AfterEach
+    void tearDown() {
+        if (passwordHasher != null) {
+            passwordHasher.shutdown();
+        }
+    }
+
+    @Test
+    void aHashWithTheConfiguredCostNeedsNoRehash() {
+        passwordHasher = new PasswordHasher(passwordEncoder, meterRegistry, 10, 1, 1);
+
+        assertThat(passwordHasher.needsRehash("$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy")).isFalse();
+        assertThat(passwordHasher.needsRehash("$2y$12$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy")).isTrue();
+        assertThat(passwordHasher.needsRehash("$2a$04$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy")).isTrue();
+    }
+
+    @Test
+    void aMalformedHashIsRehashed() {
+        passwordHasher = new PasswordHasher(passwordEncoder, meterRegistry, 10, 1, 1);
+
+        assertThat(passwordHasher.needsRehash("")).isTrue();
+        assertThat(passwordHasher.needsRehash("plaintext")).isTrue();
+        assertThat(passwordHasher.needsRehash("$2a$")).isTrue();
+        assertThat(passwordHasher.needsRehash("$2a$$hash")).isTrue();
+        assertThat(passwordHasher.needsRehash("$2a$1x$hash")).isTrue();
+    }
+
+    // One thread busy and one task queued: the next caller is turned away instead of waiting
+    @Test
+    void aFullQueueRejectsFurtherCallersAtOnce() throws Exception {
+        CountDownLatch hashing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.matches(anyString(), anyString())).thenAnswer(invocation -> {
+            hashing.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        passwordHasher = new PasswordHasher(passwordEncoder, meterRegistry, 10, 1, 1);
+
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> passwordHasher.matches("a", "hash"));
+        assertThat(hashing.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> passwordHasher.matches("b", "hash"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("auth.hashing.queue").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> passwordHasher.matches("c", "hash")).isInstanceOf(RejectedExecutionException.class);
+        assertThat(meterRegistry.counter("auth.hashing.rejected").count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,154 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.controller.AppointmentController;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.Provider;
+import com.spring.appointment.model.User;
+import com.spring.appointment.records.ProviderListResponse;
+import com.spring.appointment.repository.ProviderRepository;
+import com.spring.appointment.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.spring.appointment.service.RecordingStatementInspector"
+})
+@Import({ProviderDirectory.class, PrimaryReads.class, JacksonAutoConfiguration.class})
+// the directory is invalidated on commit, so the fixture has to be committed as well
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProviderDirectoryTest {
+
+    @Autowired
+    private ProviderDirectory providerDirectory;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ProviderRepository providerRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Provider provider;
+
+    @BeforeEach
+    void setUp() {
+        provider = providerRepository.save(Provider.builder()
+                .user(userRepository.save(user("provider@example.com")))
+                .serviceType("Dentist")
+                .bio("Bio")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        providerRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void directoryIsOneStatementUntilAProviderRegisters() {
+        providerDirectory.invalidate();
+        startRecording();
+
+        ProviderDirectory.Snapshot first = providerDirectory.current();
+        assertThat(providerDirectory.current()).isSameAs(first);
+        // one joined projection for the whole list, then served from memory
+        assertThat(RecordingStatementInspector.statements()).hasSize(1);
+        assertThat(statistics().getEntityLoadCount()).isZero();
+        assertThat(new String(first.json(), StandardCharsets.UTF_8))
+                .contains("\"name\":\"provider\"", "\"serviceType\":\"Dentist\"");
+
+        providerRepository.save(Provider.builder()
+                .user(userRepository.save(user("another@example.com")))
+                .serviceType("Physio")
+                .bio("Bio")
+                .build());
+
+        ProviderDirectory.Snapshot second = providerDirectory.current();
+        assertThat(second.etag()).isNotEqualTo(first.etag());
+        assertThat(new String(second.json(), StandardCharsets.UTF_8)).contains("\"name\":\"another\"");
+    }
+
+    // the provider's name comes from its user, so the user's change event drops the snapshot
+    @Test
+    void renamingAProvidersUserRebuildsTheDirectory() {
+        String etag = providerDirectory.current().etag();
+        User user = userRepository.findByEmail("provider@example.com").orElseThrow();
+        user.setName("renamed");
+        userRepository.save(user);
+
+        assertThat(providerDirectory.current().etag()).isNotEqualTo(etag);
+        assertThat(providerDirectory.findListing(provider.getProviderId())).map(ProviderListResponse::name).contains("renamed");
+    }
+
+    @Test
+    void listingIsServedFromTheSnapshot() {
+        providerDirectory.current();
+        startRecording();
+
+        ProviderListResponse listing = providerDirectory.findListing(provider.getProviderId()).orElseThrow();
+
+        assertThat(listing.name()).isEqualTo("provider");
+        assertThat(listing.serviceType()).isEqualTo("Dentist");
+        assertThat(RecordingStatementInspector.statements()).isEmpty();
+        assertThat(providerDirectory.findListing(provider.getProviderId() + 1000)).isEmpty();
+    }
+
+    @Test
+    void providerListAnswersAMatchingETagWithNotModified() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(
+                new AppointmentController(null, null, null, null, providerDirectory)).build();
+        String etag = providerDirectory.current().etag();
+
+        mockMvc.perform(get("/api/v1/appointments/providers"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(providerDirectory.current().json()));
+        mockMvc.perform(get("/api/v1/appointments/providers").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    private void startRecording() {
+        statistics().clear();
+        RecordingStatementInspector.SQL.clear();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private static User user(String email) {
+        return User.builder()
+                .name(email.substring(0, email.indexOf('@')))
+                .email(email)
+                .password("secret")
+                .role(UserRole.PROVIDER)
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.spring.appointment.service;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Sees every statement Hibernate prepares; a batch is prepared once however many rows it carries.
+// Sequence fetches are left out since ids are handed out fifty at a time.
+public class RecordingStatementInspector implements StatementInspector {
+    static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        if (!sql.contains("next value for")) {
+            SQL.add(sql.toLowerCase());
+        }
+        return sql;
+    }
+
+    static List<String> statements() {
+        return SQL;
+    }
+
+    // Leading "insert into <table>" / "update <table>" of every write
+    static List<String> writes() {
+        return SQL.stream()
+                .filter(sql -> sql.startsWith("insert") || sql.startsWith("update"))
+                .map(sql -> sql.substring(0, sql.indexOf(' ', sql.startsWith("insert") ? 12 : 7)))
+                .toList();
+    }
+}
@@ -0,0 +1,109 @@
+package com.spring.appointment.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SlotHoldRegistryTest {
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 7);
+    private static final LocalDateTime NINE = DAY.atTime(9, 0);
+    private static final LocalDateTime TEN = DAY.atTime(10, 0);
+
+    private SlotHoldRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void aHoldBlocksOtherCustomersUntilReleased() {
+        registry = new SlotHoldRegistry(60);
+        SlotHold hold = registry.place(1, 5, NINE);
+
+        assertThat(registry.isHeldBy(hold.token(), 1, 5, NINE)).isTrue();
+        assertThat(registry.isHeldByOther(5, NINE, 2)).isTrue();
+        assertThat(registry.isHeldByOther(5, NINE, 1)).isFalse();
+        assertThat(registry.heldMask(5, DAY)).isEqualTo(0b1);
+        assertThatThrownBy(() -> registry.place(2, 5, NINE)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(registry.release(hold.token(), 2)).isNull();
+        assertThat(registry.release(hold.token(), 1)).isEqualTo(hold);
+        assertThat(registry.heldMask(5, DAY)).isZero();
+        assertThat(registry.place(2, 5, NINE).customerId()).isEqualTo(2);
+    }
+
+    @Test
+    void offGridTimesCannotBeHeld() {
+        registry = new SlotHoldRegistry(60);
+
+        assertThatThrownBy(() -> registry.place(1, 5, TEN.plusSeconds(30))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry.place(2, 6, NINE.plusNanos(1))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> registry.place(3, 5, DAY.atTime(8, 0))).isInstanceOf(IllegalArgumentException.class);
+        // nothing was recorded, least of all under a shared key or in bit 31 of the day mask
+        assertThat(registry.heldMask(5, DAY)).isZero();
+        assertThat(registry.place(4, 5, TEN).customerId()).isEqualTo(4);
+        assertThat(registry.heldMask(5, DAY)).isEqualTo(0b100);
+    }
+
+    @Test
+    void aNewHoldReplacesTheCustomersPreviousOne() {
+        registry = new SlotHoldRegistry(60);
+        SlotHold first = registry.place(1, 5, NINE);
+        SlotHold second = registry.place(1, 5, TEN);
+
+        assertThat(registry.isHeldBy(first.token(), 1, 5, NINE)).isFalse();
+        assertThat(registry.isHeldBy(second.token(), 1, 5, TEN)).isTrue();
+        assertThat(registry.heldMask(5, DAY)).isEqualTo(1 << SlotOccupancyIndex.slotIndex(TEN));
+    }
+
+    @Test
+    void aHoldOnlyMatchesItsOwnSlot() {
+        registry = new SlotHoldRegistry(60);
+        SlotHold hold = registry.place(1, 5, NINE);
+
+        assertThat(registry.isHeldBy(hold.token(), 1, 5, TEN)).isFalse();
+        assertThat(registry.isHeldBy(hold.token(), 1, 6, NINE)).isFalse();
+        assertThat(registry.isHeldBy(null, 1, 5, NINE)).isFalse();
+    }
+
+    // The wheel sweeps the bucket of the tick a hold expires in, dropping it from every index
+    @Test
+    void theWheelExpiresHoldsWithinATickOfTheirTtl() throws Exception {
+        registry = new SlotHoldRegistry(1);
+        SlotHold hold = registry.place(1, 5, NINE);
+        registry.place(2, 6, TEN);
+        assertThat(registry.heldMask(5, DAY)).isNotZero();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((registry.heldMask(5, DAY) != 0 || registry.heldMask(6, DAY) != 0) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertThat(registry.heldMask(5, DAY)).isZero();
+        assertThat(registry.heldMask(6, DAY)).isZero();
+        assertThat(registry.isHeldBy(hold.token(), 1, 5, NINE)).isFalse();
+        assertThat(registry.release(hold.token(), 1)).isNull();
+        assertThat(registry.place(3, 5, NINE).customerId()).isEqualTo(3);
+    }
+
+    // An expired hold stops counting at once, even before the wheel gets to it
+    @Test
+    void anExpiredHoldNoLongerBlocksBeforeItIsSwept() throws Exception {
+        registry = new SlotHoldRegistry(1);
+        registry.shutdown();
+        SlotHold hold = registry.place(1, 5, NINE);
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(1) + 50);
+
+        assertThat(registry.isHeldBy(hold.token(), 1, 5, NINE)).isFalse();
+        assertThat(registry.isHeldByOther(5, NINE, 2)).isFalse();
+        assertThat(registry.place(2, 5, NINE).customerId()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,130 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.repository.AppointmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SlotOccupancyIndexTest {
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 7);
+
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final PrimaryReads primaryReads = mock(PrimaryReads.class);
+    private final SlotOccupancyIndex index = new SlotOccupancyIndex(appointmentRepository, primaryReads, 60);
+    private final List<LocalDateTime> booked = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(primaryReads.read(any())).thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(0)).get());
+        when(appointmentRepository.findBookedTimesByProviderAndDate(anyLong(), any(), any()))
+                .thenAnswer(invocation -> new ArrayList<>(booked));
+    }
+
+    @Test
+    void aDayIsLoadedOnceAndThenKeptInSync() {
+        booked.add(DAY.atTime(9, 0));
+
+        assertThat(index.occupiedMask(1, DAY)).isEqualTo(0b1);
+        index.markBooked(1, DAY.atTime(10, 30));
+        index.markReleased(1, DAY.atTime(9, 0));
+
+        assertThat(index.occupiedMask(1, DAY)).isEqualTo(0b1000);
+        verify(appointmentRepository, times(1)).findBookedTimesByProviderAndDate(eq(1L), any(), any());
+    }
+
+    @Test
+    void changesToDaysNeverReadAreLeftToTheLoad() {
+        index.markBooked(1, DAY.atTime(9, 0));
+        booked.add(DAY.atTime(9, 30));
+
+        assertThat(index.occupiedMask(1, DAY)).isEqualTo(0b10);
+    }
+
+    @Test
+    void aRangeFetchesOnlyTheMissingDaysInOneQuery() {
+        index.occupiedMask(1, DAY.plusDays(1));
+        booked.add(DAY.plusDays(2).atTime(17, 30));
+
+        int[] masks = index.occupiedMasks(1, DAY, DAY.plusDays(2));
+
+        assertThat(masks).containsExactly(0, 0, 1 << 17);
+        verify(appointmentRepository).findBookedTimesByProviderAndDate(1L, DAY.atStartOfDay(), DAY.plusDays(3).atStartOfDay());
+    }
+
+    @Test
+    void aLoadThatRacedABookingForTheSameProviderIsNotCached() {
+        when(appointmentRepository.findBookedTimesByProviderAndDate(anyLong(), any(), any())).thenAnswer(invocation -> {
+            // committed after the query read its rows
+            index.markBooked(1, DAY.atTime(12, 0));
+            return List.of();
+        });
+
+        index.occupiedMask(1, DAY);
+        index.occupiedMask(1, DAY);
+
+        verify(appointmentRepository, times(2)).findBookedTimesByProviderAndDate(eq(1L), any(), any());
+    }
+
+    @Test
+    void aBookingForAnotherProviderDoesNotDiscardALoad() {
+        when(appointmentRepository.findBookedTimesByProviderAndDate(anyLong(), any(), any())).thenAnswer(invocation -> {
+            index.markBooked(2, DAY.atTime(12, 0));
+            return List.of();
+        });
+
+        index.occupiedMask(1, DAY);
+        index.occupiedMask(1, DAY);
+
+        verify(appointmentRepository, times(1)).findBookedTimesByProviderAndDate(eq(1L), any(), any());
+    }
+
+    // a booking committed on another instance never reaches this index's hooks
+    @Test
+    void cachedDaysExpireSoBookingsFromAnotherInstanceShowUp() throws InterruptedException {
+        SlotOccupancyIndex shortLived = new SlotOccupancyIndex(appointmentRepository, primaryReads, 1);
+        assertThat(shortLived.occupiedMask(1, DAY)).isZero();
+        booked.add(DAY.atTime(9, 0));
+        assertThat(shortLived.occupiedMask(1, DAY)).isZero();
+
+        Thread.sleep(1100);
+
+        assertThat(shortLived.occupiedMask(1, DAY)).isEqualTo(0b1);
+        verify(appointmentRepository, times(2)).findBookedTimesByProviderAndDate(eq(1L), any(), any());
+    }
+
+    @Test
+    void freeMaskExcludesTakenAndPastSlots() {
+        booked.add(DAY.atTime(11, 0));
+
+        // 10:00 has started, so 9:00 through 10:00 are gone
+        int free = index.freeMask(1, DAY, DAY.atTime(10, 0));
+
+        assertThat(free).isEqualTo(SlotOccupancyIndex.ALL_SLOTS & ~0b111 & ~(1 << 4));
+        assertThat(index.freeMask(1, DAY, DAY.plusDays(1).atStartOfDay())).isZero();
+    }
+
+    @Test
+    void onlyGridTimesHaveASlot() {
+        assertThat(SlotOccupancyIndex.slotIndex(DAY.atTime(9, 0))).isZero();
+        assertThat(SlotOccupancyIndex.slotIndex(DAY.atTime(17, 30))).isEqualTo(SlotOccupancyIndex.SLOTS_PER_DAY - 1);
+        assertThat(SlotOccupancyIndex.slotIndex(DAY.atTime(18, 0))).isEqualTo(-1);
+        assertThat(SlotOccupancyIndex.slotIndex(DAY.atTime(9, 15))).isEqualTo(-1);
+        assertThat(SlotOccupancyIndex.slotIndex(DAY.atTime(8, 30))).isEqualTo(-1);
+        assertThat(SlotOccupancyIndex.slotStart(DAY, 3)).isEqualTo(DAY.atTime(10, 30));
+    }
+}
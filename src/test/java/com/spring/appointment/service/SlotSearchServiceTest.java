@@ -0,0 +1,170 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.records.BookedSlot;
+import com.spring.appointment.records.ProviderListResponse;
+import com.spring.appointment.records.ProviderSlot;
+import com.spring.appointment.repository.AppointmentRepository;
+import com.spring.appointment.repository.ProviderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The search window moves with the clock, so slots are named by their position among the open
+// ones: a search over a single free provider lists them
+class SlotSearchServiceTest {
+
+    private final ProviderRepository providerRepository = mock(ProviderRepository.class);
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final SlotHoldRegistry slotHoldRegistry = new SlotHoldRegistry(60);
+    private final SlotSearchService slotSearchService =
+            new SlotSearchService(providerRepository, appointmentRepository, slotHoldRegistry);
+    private final List<ProviderListResponse> providers = new ArrayList<>();
+    private final List<BookedSlot> booked = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(providerRepository.findListingsByServiceType(anyString())).thenAnswer(invocation -> new ArrayList<>(providers));
+        when(appointmentRepository.findBookedSlotsByProviders(anyCollection(), any(), any())).thenAnswer(invocation -> {
+            Collection<Long> providerIds = invocation.getArgument(0);
+            return booked.stream().filter(slot -> providerIds.contains(slot.providerId())).toList();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        slotHoldRegistry.shutdown();
+    }
+
+    @Test
+    void interleavesProvidersByTimeSkippingBookedAndHeldSlots() {
+        List<LocalDateTime> open = openSlots(3);
+        providers.addAll(List.of(provider(3), provider(1), provider(2)));
+        booked.add(new BookedSlot(1L, open.get(0)));
+        booked.add(new BookedSlot(1L, open.get(1)));
+        slotHoldRegistry.place(99, 2, open.get(0));
+
+        List<ProviderSlot> slots = slotSearchService.findEarliestSlots("Dentist", 5).slots();
+
+        // ties on one time come in provider id order; the fifth slot cuts off provider 3 at open[2]
+        assertThat(slots).extracting(ProviderSlot::providerId, ProviderSlot::startTime).containsExactly(
+                tuple(3L, open.get(0)),
+                tuple(2L, open.get(1)),
+                tuple(3L, open.get(1)),
+                tuple(1L, open.get(2)),
+                tuple(2L, open.get(2)));
+        assertThat(slots).extracting(ProviderSlot::providerName).startsWith("provider3");
+    }
+
+    // Enough providers for the parallel fan-out; checked against a plain scan of the open slots
+    @Test
+    void manyProvidersMergeToTheSameAnswerAsAScan() {
+        List<LocalDateTime> open = openSlots(20);
+        for (long id = 1; id <= 40; id++) {
+            providers.add(provider(id));
+            // provider id has its first id % 7 open slots booked
+            for (int i = 0; i < id % 7; i++) {
+                booked.add(new BookedSlot(id, open.get(i)));
+            }
+        }
+        slotHoldRegistry.place(99, 40, open.get(0));
+
+        List<ProviderSlot> slots = slotSearchService.findEarliestSlots("Dentist", SlotSearchService.MAX_RESULTS).slots();
+
+        List<ProviderSlot> expected = new ArrayList<>();
+        for (LocalDateTime time : open) {
+            for (long id = 1; id <= 40 && expected.size() < SlotSearchService.MAX_RESULTS; id++) {
+                long providerId = id;
+                boolean taken = booked.stream().anyMatch(slot -> slot.providerId() == providerId && slot.appointmentTime().equals(time))
+                        || (providerId == 40 && time.equals(open.get(0)));
+                if (!taken) {
+                    expected.add(new ProviderSlot(providerId, "provider" + providerId, time, SlotOccupancyIndex.SLOT_MINUTES));
+                }
+            }
+        }
+        assertThat(slots).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void onlySlotsWithinTheBookingWindowAreOffered() {
+        providers.add(provider(1));
+        // everything booked up to the horizon's last day, which is then all that is left
+        LocalDateTime latest = LocalDateTime.now().plusDays(AppointmentService.BOOKING_HORIZON_DAYS);
+        for (LocalDate date = LocalDate.now(); date.isBefore(latest.toLocalDate()); date = date.plusDays(1)) {
+            for (int slot = 0; slot < SlotOccupancyIndex.SLOTS_PER_DAY; slot++) {
+                booked.add(new BookedSlot(1L, SlotOccupancyIndex.slotStart(date, slot)));
+            }
+        }
+
+        List<ProviderSlot> slots = slotSearchService.findEarliestSlots("Dentist", SlotSearchService.MAX_RESULTS).slots();
+
+        assertThat(slots).hasSizeLessThanOrEqualTo(SlotOccupancyIndex.SLOTS_PER_DAY).allSatisfy(slot -> {
+            assertThat(slot.startTime().toLocalDate()).isEqualTo(latest.toLocalDate());
+            assertThat(slot.startTime()).isBefore(latest);
+        });
+        if (isWeekend(latest.toLocalDate())) {
+            assertThat(slots).isEmpty();
+        }
+    }
+
+    @Test
+    void openSlotsStartAnHourAheadOnWeekdaysOnly() {
+        LocalDateTime earliest = LocalDateTime.now().plusHours(AppointmentService.MIN_HOURS_IN_ADVANCE);
+
+        assertThat(openSlots(SlotSearchService.MAX_RESULTS))
+                .isSortedAccordingTo(Comparator.naturalOrder())
+                .allSatisfy(time -> {
+                    assertThat(time).isAfterOrEqualTo(earliest);
+                    assertThat(isWeekend(time.toLocalDate())).isFalse();
+                    assertThat(SlotOccupancyIndex.slotIndex(time)).isNotNegative();
+                });
+    }
+
+    @Test
+    void noProvidersMeansNoSlotsAndBadArgumentsAreRejected() {
+        assertThat(slotSearchService.findEarliestSlots("Dentist", 5).slots()).isEmpty();
+        assertThatThrownBy(() -> slotSearchService.findEarliestSlots(" ", 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> slotSearchService.findEarliestSlots("Dentist", 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> slotSearchService.findEarliestSlots("Dentist", SlotSearchService.MAX_RESULTS + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // The first `count` open slots, from a search over one provider with nothing booked or held
+    private List<LocalDateTime> openSlots(int count) {
+        ProviderRepository oneProvider = mock(ProviderRepository.class);
+        when(oneProvider.findListingsByServiceType(anyString())).thenReturn(List.of(provider(1)));
+        SlotHoldRegistry noHolds = new SlotHoldRegistry(60);
+        try {
+            return new SlotSearchService(oneProvider, mock(AppointmentRepository.class), noHolds)
+                    .findEarliestSlots("Dentist", count).slots().stream()
+                    .map(ProviderSlot::startTime)
+                    .toList();
+        } finally {
+            noHolds.shutdown();
+        }
+    }
+
+    private static ProviderListResponse provider(long id) {
+        return new ProviderListResponse(id, "provider" + id, "Dentist", "Bio");
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+}
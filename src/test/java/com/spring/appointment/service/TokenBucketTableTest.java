@@ -0,0 +1,90 @@
+package com.spring.appointment.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTableTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void aFullBucketAllowsABurstThenReportsTheWaitForTheNextToken() {
+        TokenBucketTable table = new TokenBucketTable(1024, 2, 1, TimeUnit.SECONDS);
+
+        assertThat(table.tryAcquire(42, 0)).isZero();
+        assertThat(table.tryAcquire(42, 0)).isZero();
+        assertThat(table.tryAcquire(42, 0)).isEqualTo(SECOND);
+        assertThat(table.tryAcquire(42, SECOND / 4)).isEqualTo(3 * SECOND / 4);
+    }
+
+    @Test
+    void tokensRefillAtTheConfiguredRate() {
+        TokenBucketTable table = new TokenBucketTable(1024, 2, 1, TimeUnit.SECONDS);
+        table.tryAcquire(42, 0);
+        table.tryAcquire(42, 0);
+
+        assertThat(table.tryAcquire(42, SECOND)).isZero();
+        assertThat(table.tryAcquire(42, SECOND)).isPositive();
+    }
+
+    // Calls more frequent than the refill interval must still add up to a token
+    @Test
+    void fractionsOfATokenAccrueAcrossFrequentCalls() {
+        TokenBucketTable table = new TokenBucketTable(1024, 1, 1, TimeUnit.SECONDS);
+        table.tryAcquire(42, 0);
+
+        long now = 0;
+        for (int i = 0; i < 3; i++) {
+            now += SECOND / 4;
+            assertThat(table.tryAcquire(42, now)).isPositive();
+        }
+        assertThat(table.tryAcquire(42, now + SECOND / 4)).isZero();
+    }
+
+    @Test
+    void anIdleBucketRefillsOnlyToItsCapacity() {
+        TokenBucketTable table = new TokenBucketTable(1024, 2, 1, TimeUnit.SECONDS);
+        table.tryAcquire(42, 0);
+
+        long later = 3600 * SECOND;
+        assertThat(table.tryAcquire(42, later)).isZero();
+        assertThat(table.tryAcquire(42, later)).isZero();
+        assertThat(table.tryAcquire(42, later)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void keysHaveTheirOwnBuckets() {
+        TokenBucketTable table = new TokenBucketTable(1024, 1, 1, TimeUnit.MINUTES);
+        table.tryAcquire(1, 0);
+
+        assertThat(table.tryAcquire(1, 0)).isPositive();
+        assertThat(table.tryAcquire(2, 0)).isZero();
+        // key 0 is stored as 1, so it shares that bucket rather than marking an empty cell
+        assertThat(table.tryAcquire(0, 0)).isPositive();
+    }
+
+    // A full table reuses the least recently used cell, which then starts over as a full bucket
+    @Test
+    void aDrainedKeyIsForgottenOnceItsSetIsReused() {
+        TokenBucketTable table = new TokenBucketTable(512, 1, 1, TimeUnit.HOURS);
+        table.tryAcquire(42, 0);
+        assertThat(table.tryAcquire(42, 0)).isPositive();
+
+        for (long key = 1_000; key < 21_000; key++) {
+            table.tryAcquire(key, key);
+        }
+
+        assertThat(table.tryAcquire(42, 21_000)).isZero();
+    }
+
+    @Test
+    void capacityAndRefillMustBePositive() {
+        assertThatThrownBy(() -> new TokenBucketTable(1024, 0, 1, TimeUnit.SECONDS))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucketTable(1024, 1, 0, TimeUnit.SECONDS))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,79 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.records.UserAccess;
+import com.spring.appointment.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserAccessCacheTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        when(userRepository.findAccessById(anyLong())).thenAnswer(invocation -> {
+            long userId = invocation.getArgument(0);
+            return Optional.of(new UserAccess(userId, "user" + userId + "@example.com", UserRole.CUSTOMER, UserStatus.ACTIVE));
+        });
+    }
+
+    @Test
+    void aUserIsReadOnceUntilEvicted() {
+        UserAccessCache cache = new UserAccessCache(userRepository, 60, 16);
+
+        assertThat(cache.get(1)).map(UserAccess::email).contains("user1@example.com");
+        cache.get(1);
+        verify(userRepository, times(1)).findAccessById(1L);
+
+        cache.evict(1);
+        cache.get(1);
+        verify(userRepository, times(2)).findAccessById(1L);
+    }
+
+    @Test
+    void missingUsersAreCachedToo() {
+        when(userRepository.findAccessById(9L)).thenReturn(Optional.empty());
+        UserAccessCache cache = new UserAccessCache(userRepository, 60, 16);
+
+        assertThat(cache.get(9)).isEmpty();
+        assertThat(cache.get(9)).isEmpty();
+        verify(userRepository, times(1)).findAccessById(9L);
+    }
+
+    // A burst of live users past max-entries must not grow the cache, nor stop it caching
+    @Test
+    void aFullCacheMakesRoomForFurtherUsers() {
+        UserAccessCache cache = new UserAccessCache(userRepository, 60, 1);
+        cache.get(1);
+
+        cache.get(2);
+        cache.get(2);
+        cache.get(1);
+
+        verify(userRepository, times(1)).findAccessById(2L);
+        verify(userRepository, times(2)).findAccessById(1L);
+    }
+
+    @Test
+    void anExpiredEntryIsReadAgain() throws Exception {
+        UserAccessCache cache = new UserAccessCache(userRepository, 1, 16);
+        cache.get(1);
+        Thread.sleep(1_100);
+
+        cache.get(1);
+        cache.get(1);
+
+        verify(userRepository, times(2)).findAccessById(1L);
+    }
+}
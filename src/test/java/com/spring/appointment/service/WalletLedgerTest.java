@@ -0,0 +1,292 @@
+package com.spring.appointment.service;
+
+import com.spring.appointment.config.PrimaryReads;
+import com.spring.appointment.enums.TransactionType;
+import com.spring.appointment.enums.UserRole;
+import com.spring.appointment.enums.UserStatus;
+import com.spring.appointment.model.User;
+import com.spring.appointment.model.WalletSnapshot;
+import com.spring.appointment.repository.TransactionRepository;
+import com.spring.appointment.repository.UserRepository;
+import com.spring.appointment.repository.WalletRepository;
+import com.spring.appointment.repository.WalletSnapshotRepository;
+import com.spring.appointment.repository.WalletStripeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@DataJpaTest(properties = {
+        "wallet.provider-stripes=3",
+        "wallet.balance-cache.ttl-seconds=1"
+})
+@Import({WalletLedger.class, PrimaryReads.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletLedgerTest {
+
+    @Autowired
+    private WalletLedger walletLedger;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private WalletRepository walletRepository;
+    @Autowired
+    private WalletStripeRepository walletStripeRepository;
+    @Autowired
+    private WalletSnapshotRepository walletSnapshotRepository;
+    @Autowired
+    private TransactionRepository transactionRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long walletId;
+
+    @BeforeEach
+    void setUp() {
+        User customer = userRepository.save(user("customer@example.com", UserRole.CUSTOMER));
+        walletId = transactionTemplate.execute(status -> walletLedger.openWallet(customer).getWalletId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionRepository.deleteAllInBatch();
+        walletSnapshotRepository.deleteAllInBatch();
+        walletStripeRepository.deleteAllInBatch();
+        walletRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void snapshotsFoldEntriesWithoutChangingTheBalance() {
+        credit(walletId, 5_000);
+        credit(walletId, 2_500);
+
+        walletLedger.takeSnapshots();
+
+        assertThat(walletSnapshotRepository.findLatestByWalletId(walletId))
+                .extracting(WalletSnapshot::getGeneration, WalletSnapshot::getBalanceMinor)
+                .containsExactly(tuple(1L, 7_500L));
+        assertThat(walletLedger.currentBalance(walletId)).isEqualTo(7_500);
+
+        credit(walletId, 500);
+        walletLedger.takeSnapshots();
+
+        assertThat(walletSnapshotRepository.findLatestByWalletId(walletId))
+                .extracting(WalletSnapshot::getGeneration, WalletSnapshot::getBalanceMinor)
+                .containsExactly(tuple(2L, 8_000L));
+        assertThat(walletLedger.currentBalance(walletId)).isEqualTo(8_000);
+    }
+
+    @Test
+    void entriesStampedBeforeASnapshotButCommittedAfterItStillCount() {
+        credit(walletId, 5_000);
+        walletLedger.takeSnapshots();
+
+        // a transaction that was open across the snapshot, or ran on an instance whose clock is
+        // behind: its created_at is older than the snapshot it missed
+        jdbcTemplate.update("INSERT INTO transactions (transaction_id, wallet_id, stripe, amount_minor, type, status, created_at) " +
+                "VALUES (900001, ?, 0, 1200, 'DEPOSIT', 'SUCCESS', ?)", walletId, LocalDateTime.now().minusDays(1));
+
+        assertThat(walletLedger.currentBalance(walletId)).isEqualTo(6_200);
+        walletLedger.takeSnapshots();
+        assertThat(walletLedger.currentBalance(walletId)).isEqualTo(6_200);
+        assertThat(walletSnapshotRepository.findLatestByWalletId(walletId))
+                .extracting(WalletSnapshot::getBalanceMinor).containsExactly(6_200L);
+    }
+
+    @Test
+    void debitsSeeSnapshotsAndTheEntriesAfterThem() {
+        credit(walletId, 3_000);
+        walletLedger.takeSnapshots();
+        credit(walletId, 1_000);
+
+        assertThat(debit(walletId, 4_000)).isTrue();
+        assertThat(debit(walletId, 1)).isFalse();
+        walletLedger.takeSnapshots();
+        assertThat(walletLedger.currentBalance(walletId)).isZero();
+    }
+
+    @Test
+    void aCachedBalanceExpiresSoEntriesFromAnotherInstanceShowUp() throws Exception {
+        credit(walletId, 5_000);
+        assertThat(walletLedger.balanceOf(walletId)).isEqualTo(5_000);
+
+        // appended by another instance, so this one's cache is not told
+        jdbcTemplate.update("INSERT INTO transactions (transaction_id, wallet_id, stripe, amount_minor, type, status, created_at) " +
+                "VALUES (900002, ?, 0, 1200, 'DEPOSIT', 'SUCCESS', ?)", walletId, LocalDateTime.now());
+        assertThat(walletLedger.balanceOf(walletId)).isEqualTo(5_000);
+        Thread.sleep(1_100);
+        assertThat(walletLedger.balanceOf(walletId)).isEqualTo(6_200);
+
+        jdbcTemplate.update("INSERT INTO transactions (transaction_id, wallet_id, stripe, amount_minor, type, status, created_at) " +
+                "VALUES (900003, ?, 0, 100, 'DEPOSIT', 'SUCCESS', ?)", walletId, LocalDateTime.now());
+        // the debit checks the balance under the lock, not the cached one
+        assertThat(debit(walletId, 6_300)).isTrue();
+        assertThat(walletLedger.balanceOf(walletId)).isZero();
+    }
+
+    @Test
+    void aDrainedPlannedStripeIsMadeUpFromTheStripesBelowIt() throws Exception {
+        long providerWalletId = providerWallet(50, 200, 300);
+        CountDownLatch release = new CountDownLatch(1);
+        // takes stripe 2, the richest, and holds it uncommitted
+        CompletableFuture<Boolean> drain = holdOpen(release, () -> walletLedger.tryDebit(
+                providerWalletId, TransactionType.DEDUCTION, 300, null));
+
+        // plans on stripe 2 as well, then queues on its lock until the drain commits
+        AtomicReference<Thread> debitor = new AtomicReference<>();
+        CompletableFuture<Boolean> debit = CompletableFuture.supplyAsync(() -> {
+            debitor.set(Thread.currentThread());
+            return debit(providerWalletId, 200);
+        });
+        awaitBlocked(debitor);
+        release.countDown();
+
+        assertThat(drain.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(debit.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(walletLedger.currentBalance(providerWalletId)).isEqualTo(50);
+    }
+
+    @Test
+    void concurrentDebitsBothSucceedWhenALowerStripeFreesUpWithinTheRetries() throws Exception {
+        long providerWalletId = providerWallet(50, 200, 300);
+        CountDownLatch releaseDrain = new CountDownLatch(1);
+        CountDownLatch releaseLower = new CountDownLatch(1);
+        CompletableFuture<Boolean> drain = holdOpen(releaseDrain, () -> walletLedger.tryDebit(
+                providerWalletId, TransactionType.DEDUCTION, 300, null));
+        // stands in for a third transaction on stripe 1 that commits moments later
+        CompletableFuture<Boolean> holdLower = holdOpen(releaseLower, () -> {
+            walletStripeRepository.lockByWalletAndStripe(providerWalletId, 1);
+            return true;
+        });
+
+        AtomicReference<Thread> debitor = new AtomicReference<>();
+        CompletableFuture<Boolean> debit = CompletableFuture.supplyAsync(() -> {
+            debitor.set(Thread.currentThread());
+            return debit(providerWalletId, 200);
+        });
+        awaitBlocked(debitor);
+        releaseDrain.countDown();
+        assertThat(drain.get(5, TimeUnit.SECONDS)).isTrue();
+        // the debit now finds stripe 1 busy and backs off; it is free before the attempts run out
+        Thread.sleep(30);
+        releaseLower.countDown();
+
+        assertThat(holdLower.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(debit.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(walletLedger.currentBalance(providerWalletId)).isEqualTo(50);
+    }
+
+    @Test
+    void aLowerStripeHeldThroughEveryRetryFailsTheDebit() throws Exception {
+        long providerWalletId = providerWallet(50, 200, 300);
+        CountDownLatch releaseDrain = new CountDownLatch(1);
+        CountDownLatch releaseLower = new CountDownLatch(1);
+        CompletableFuture<Boolean> drain = holdOpen(releaseDrain, () -> walletLedger.tryDebit(
+                providerWalletId, TransactionType.DEDUCTION, 300, null));
+        CompletableFuture<Boolean> holdLower = holdOpen(releaseLower, () -> {
+            walletStripeRepository.lockByWalletAndStripe(providerWalletId, 1);
+            return true;
+        });
+
+        AtomicReference<Thread> debitor = new AtomicReference<>();
+        CompletableFuture<Boolean> debit = CompletableFuture.supplyAsync(() -> {
+            debitor.set(Thread.currentThread());
+            return debit(providerWalletId, 200);
+        });
+        awaitBlocked(debitor);
+        releaseDrain.countDown();
+
+        assertThat(drain.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> debit.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(ConcurrencyFailureException.class);
+        releaseLower.countDown();
+        assertThat(holdLower.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(walletLedger.currentBalance(providerWalletId)).isEqualTo(250);
+    }
+
+    // A provider wallet with the given balance on each of its stripes
+    private long providerWallet(long... stripeBalances) {
+        User provider = userRepository.save(user("provider@example.com", UserRole.PROVIDER));
+        long providerWalletId = transactionTemplate.execute(status -> walletLedger.openWallet(provider).getWalletId());
+        for (int stripe = 0; stripe < stripeBalances.length; stripe++) {
+            jdbcTemplate.update("INSERT INTO transactions (transaction_id, wallet_id, stripe, amount_minor, type, status, created_at) " +
+                    "VALUES (?, ?, ?, ?, 'DEPOSIT', 'SUCCESS', ?)", 900100 + stripe, providerWalletId, stripe,
+                    stripeBalances[stripe], LocalDateTime.now());
+        }
+        return providerWalletId;
+    }
+
+    private CompletableFuture<Boolean> holdOpen(CountDownLatch release, Supplier<Boolean> work) {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> held = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            boolean result = work.get();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }));
+        try {
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return held;
+    }
+
+    // Waits until the thread is parked, i.e. queued on a row lock
+    private static void awaitBlocked(AtomicReference<Thread> thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            Thread current = thread.get();
+            if (current != null && (current.getState() == Thread.State.TIMED_WAITING
+                    || current.getState() == Thread.State.WAITING)) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("debit never queued on the stripe lock");
+    }
+
+    private void credit(long walletId, long amountMinor) {
+        transactionTemplate.executeWithoutResult(status ->
+                walletLedger.credit(walletId, TransactionType.DEPOSIT, amountMinor, null));
+    }
+
+    private boolean debit(long walletId, long amountMinor) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                walletLedger.tryDebit(walletId, TransactionType.PAYMENT, amountMinor, null)));
+    }
+
+    private static User user(String email, UserRole role) {
+        return User.builder()
+                .name(email.substring(0, email.indexOf('@')))
+                .email(email)
+                .password("secret")
+                .role(role)
+                .status(UserStatus.ACTIVE)
+                .build();
+    }
+}
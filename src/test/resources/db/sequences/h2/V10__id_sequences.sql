@@ -0,0 +1,12 @@
+-- On H2 Hibernate draws ids from real sequences; the increment matches allocationSize. Test
+-- databases start empty, so every sequence starts at 1.
+
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE providers_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE wallets_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE wallet_stripes_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE wallet_snapshots_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE appointments_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE transactions_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE notifications_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE notification_outbox_seq START WITH 1 INCREMENT BY 50;